@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.devmob.android.apprater.AppRaterDecider;
+import de.devmob.android.apprater.AppRaterStore;
+
+/**
+ * Benchmark of the checks done on each call of checkToShowRatingOnStart() and checkToShowRatingOnEvent().
+ * Runs the decision logic against the in memory and the file based stores with a fake configuration.
+ * 
+ * @author Friederike Wild
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecisionBenchmark
+{
+    /** The store to run against: "memory", "file" or "mapped". */
+    @Param({"memory", "file", "mapped"})
+    public String      storeType;
+
+    /** Flag if the user declined to rate. This is the state of most long-lived users. */
+    @Param({"false", "true"})
+    public boolean     declined;
+
+    private File            file;
+    private AppRaterStore   store;
+    private AppRaterDecider decider;
+    private long            currentTime;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        file = Stores.createFile(storeType);
+        store = Stores.create(storeType, file);
+        decider = new AppRaterDecider(store, Stores.createConfig());
+        currentTime = System.currentTimeMillis() + 10 * AppRaterDecider.MILLIS_PER_DAY;
+    }
+
+    /**
+     * Start each iteration with a fresh state to keep the counters in range.
+     */
+    @Setup(Level.Iteration)
+    public void resetState()
+    {
+        store.reset();
+        store.getStoredStartDate();
+
+        if (declined)
+        {
+            store.storeRatingDeclined();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        Stores.delete(file);
+    }
+
+    @Benchmark
+    public boolean shouldShowRatingOnStart()
+    {
+        return decider.shouldShowRatingOnStart(currentTime);
+    }
+
+    @Benchmark
+    public boolean shouldShowRatingOnEvent()
+    {
+        return decider.shouldShowRatingOnEvent();
+    }
+
+    @Benchmark
+    public int increaseCountOpened()
+    {
+        return store.increaseCountOpened();
+    }
+
+    @Benchmark
+    public int increaseCountEvents()
+    {
+        return store.increaseCountEvents();
+    }
+
+    @Benchmark
+    public boolean isRatingRequestDeactivated()
+    {
+        return store.isRatingRequestDeactivated();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.devmob.android.apprater.AppRaterStore;
+
+/**
+ * Benchmark of the state transitions after an answer of the user and of the reset paths.
+ * Decisions of the user are forced to the storage device by the file based stores,
+ * so these numbers include the cost of a sync.
+ * 
+ * @author Friederike Wild
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResetBenchmark
+{
+    /** The store to run against: "memory", "file" or "mapped". */
+    @Param({"memory", "file", "mapped"})
+    public String storeType;
+
+    private File          file;
+    private AppRaterStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        file = Stores.createFile(storeType);
+        store = Stores.create(storeType, file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        Stores.delete(file);
+    }
+
+    @Benchmark
+    public void storeToRateLater()
+    {
+        store.storeToRateLater();
+    }
+
+    @Benchmark
+    public void reset()
+    {
+        store.reset();
+    }
+
+    @Benchmark
+    public void storeRatedAndReset()
+    {
+        store.storeRated();
+        store.reset();
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.devmob.android.apprater.AppRaterConfig;
+import de.devmob.android.apprater.AppRaterFileStore;
+import de.devmob.android.apprater.AppRaterMemoryStore;
+import de.devmob.android.apprater.AppRaterStore;
+
+/**
+ * Util class to create the stores and the fake configuration used by the benchmarks.
+ * 
+ * @author Friederike Wild
+ */
+final class Stores
+{
+    private Stores()
+    {
+    }
+
+    /**
+     * Create the configuration with the default values of the library and logging turned off.
+     * 
+     * @return The fake configuration.
+     */
+    static AppRaterConfig createConfig()
+    {
+        return new AppRaterConfig(4, 4, 2, false, false, AppRaterConfig.STORAGE_PREFERENCES);
+    }
+
+    /**
+     * Create a temporary file for the given store type.
+     * 
+     * @param storeType "memory", "file" or "mapped".
+     * @return The not yet existing file or null for the memory store.
+     * @throws IOException
+     */
+    static File createFile(String storeType) throws IOException
+    {
+        if ("memory".equals(storeType))
+        {
+            return null;
+        }
+
+        File file = File.createTempFile("apprater", ".bin");
+        file.delete();
+        return file;
+    }
+
+    /**
+     * Create a store of the given type.
+     * 
+     * @param storeType "memory", "file" or "mapped".
+     * @param file The file of the file based stores.
+     * @return The new store with an empty state.
+     */
+    static AppRaterStore create(String storeType, File file)
+    {
+        if (file == null)
+        {
+            return new AppRaterMemoryStore();
+        }
+
+        return new AppRaterFileStore(file, "mapped".equals(storeType));
+    }
+
+    static void delete(File file)
+    {
+        if (file != null)
+        {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+/**
+ * Tests of the batched delivery of the dialog outcomes.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterCallbackDispatcherTest
+{
+    private final List<Integer>         delivered = new ArrayList<Integer>();
+    private int                         batches;
+
+    private final AppRaterBatchCallback callback  = new AppRaterBatchCallback()
+    {
+        public void processOutcomes(int[] outcomes, int count)
+        {
+            batches++;
+            for (int index = 0; index < count; index++)
+            {
+                delivered.add(Integer.valueOf(outcomes[index]));
+            }
+        }
+    };
+
+    @Test
+    public void deliversQueuedOutcomesInOneBatch()
+    {
+        final List<Runnable> tasks = new ArrayList<Runnable>();
+        AppRaterCallbackDispatcher dispatcher = new AppRaterCallbackDispatcher(new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                tasks.add(command);
+            }
+        }, callback);
+
+        dispatcher.dispatch(AppRaterBatchCallback.OUTCOME_REMIND_ME);
+        dispatcher.dispatch(AppRaterBatchCallback.OUTCOME_RATE);
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(1, batches);
+        assertEquals(2, delivered.size());
+        assertEquals(AppRaterBatchCallback.OUTCOME_RATE, delivered.get(1).intValue());
+    }
+
+    @Test
+    public void deliversDirectlyWhenTheExecutorRejects()
+    {
+        AppRaterCallbackDispatcher dispatcher = new AppRaterCallbackDispatcher(new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                throw new RejectedExecutionException("Shut down");
+            }
+        }, callback);
+
+        dispatcher.dispatch(AppRaterBatchCallback.OUTCOME_NEVER);
+        assertEquals(1, delivered.size());
+        assertEquals(AppRaterBatchCallback.OUTCOME_NEVER, delivered.get(0).intValue());
+
+        dispatcher.dispatch(AppRaterBatchCallback.OUTCOME_RATE);
+        assertEquals(2, delivered.size());
+    }
+}
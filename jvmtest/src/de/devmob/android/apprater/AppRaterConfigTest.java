@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * Tests of the configuration snapshot.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterConfigTest
+{
+    private static final int[] NONE = new int[0];
+
+    @Test
+    public void createsTheCompleteConfigurationAtOnce()
+    {
+        AppRaterConfig config = new AppRaterConfig(6, 3, 2, false, true, AppRaterConfig.STORAGE_BINARY, 
+                                                   new int[] { AppRaterConfig.MARKET_AMAZON }, null, 
+                                                   new int[] { 3, 7 }, new int[] { 4, 2 }, new int[] { 1, 3 }, 
+                                                   new int[] { AppRaterConfig.ENGAGEMENT_LAUNCHES }, new int[] { 2 }, new int[] { 48 }, 
+                                                   10, null);
+
+        AppRaterConfig built = new AppRaterConfig(6, 3, 2, false, true, AppRaterConfig.STORAGE_BINARY, 
+                                                  new int[] { AppRaterConfig.MARKET_AMAZON }, null)
+                .withEventType(3, 4, 1)
+                .withEventType(7, 2, 3)
+                .withEngagement(AppRaterConfig.ENGAGEMENT_LAUNCHES, 2, 48)
+                .withSessionTimeout(10);
+
+        for (AppRaterConfig each : new AppRaterConfig[] { config, built })
+        {
+            assertEquals(6, each.getLaunchBeforeRate());
+            assertEquals(AppRaterConfig.STORAGE_BINARY, each.getStorage());
+            assertEquals(1, each.getMarketCount());
+            assertEquals(4, each.getEventThreshold(3));
+            assertEquals(3, each.getEventWeight(7));
+            assertEquals(1, each.getEngagementCount());
+            assertEquals(48, each.getEngagementHours(0));
+            assertEquals(10, each.getSessionTimeout());
+        }
+    }
+
+    @Test
+    public void rejectsInvalidValues()
+    {
+        assertInvalid(0, 3, 2, new int[] { 1 }, new int[] { 1 }, new int[] { 1 }, NONE, NONE, NONE);
+        assertInvalid(6, -1, 2, NONE, NONE, NONE, NONE, NONE, NONE);
+        assertInvalid(6, 3, 2, new int[] { 1 }, NONE, new int[] { 1 }, NONE, NONE, NONE);
+        assertInvalid(6, 3, 2, new int[] { 1 }, new int[] { 0 }, new int[] { 1 }, NONE, NONE, NONE);
+        assertInvalid(6, 3, 2, new int[] { Integer.MIN_VALUE }, new int[] { 1 }, new int[] { 1 }, NONE, NONE, NONE);
+        assertInvalid(6, 3, 2, NONE, NONE, NONE, new int[] { AppRaterConfig.ENGAGEMENT_EVENTS }, new int[] { 1 }, new int[] { 169 });
+        assertInvalid(6, 3, 2, NONE, NONE, NONE, new int[] { 5 }, new int[] { 1 }, new int[] { 24 });
+    }
+
+    @Test
+    public void rejectsUnknownMarkets()
+    {
+        for (int market : new int[] { AppRaterConfig.MARKET_PLAY - 1, AppRaterConfig.MARKET_WEB + 1 })
+        {
+            try
+            {
+                new AppRaterConfig(6, 3, 2, false, false, AppRaterConfig.STORAGE_PREFERENCES, new int[] { AppRaterConfig.MARKET_PLAY, market }, null);
+                fail("Expected an IllegalArgumentException for market " + market);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Expected
+            }
+        }
+    }
+
+    private static void assertInvalid(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate, 
+                                      int[] eventTypes, int[] eventThresholds, int[] eventWeights, 
+                                      int[] engagementCounters, int[] engagementMinCounts, int[] engagementHours)
+    {
+        try
+        {
+            new AppRaterConfig(launchBeforeRate, daysBeforeRate, eventsBeforeRate, false, false, AppRaterConfig.STORAGE_PREFERENCES, null, null, 
+                               eventTypes, eventThresholds, eventWeights, engagementCounters, engagementMinCounts, engagementHours, 
+                               AppRaterConfig.DEFAULT_SESSION_TIMEOUT, null);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return;
+        }
+        fail("Expected an IllegalArgumentException");
+    }
+}
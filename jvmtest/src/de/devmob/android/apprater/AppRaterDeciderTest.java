@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the decision logic on a manual clock.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterDeciderTest
+{
+    private static final long START_DATE = 1700000000000L;
+
+    private ManualClockStore  store;
+
+    @Before
+    public void setUp()
+    {
+        store = new ManualClockStore(START_DATE);
+    }
+
+    @Test
+    public void showsOnEachMultipleOfTheLaunchesAfterTheDays()
+    {
+        AppRaterDecider decider = store.createDecider(config(3, 2, 5));
+
+        // Third launch, but not enough days
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertEquals(START_DATE, store.getStoredStartDate());
+
+        store.advanceDays(2);
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertTrue(decider.shouldShowRatingOnStart(store.time));
+        assertEquals(9, decider.getNextLaunchTrigger());
+    }
+
+    @Test
+    public void showsOnEachMultipleOfTheEvents()
+    {
+        AppRaterDecider decider = store.createDecider(config(3, 2, 2));
+        assertFalse(decider.shouldShowRatingOnEvent());
+        assertTrue(decider.shouldShowRatingOnEvent());
+        assertFalse(decider.shouldShowRatingOnEvent());
+        assertTrue(decider.shouldShowRatingOnEvent());
+    }
+
+    @Test
+    public void showsOnceForBatchesPassingAMultiple()
+    {
+        AppRaterDecider decider = store.createDecider(config(3, 2, 5));
+
+        // 3, 4: no multiple of 5 passed
+        assertFalse(decider.shouldShowRatingOnEvents(3));
+        assertFalse(decider.shouldShowRatingOnEvents(1));
+        // 5: reached exactly
+        assertTrue(decider.shouldShowRatingOnEvents(1));
+        // 17: passed 10 and 15 within a single batch
+        assertTrue(decider.shouldShowRatingOnEvents(12));
+        // 19: nothing passed
+        assertFalse(decider.shouldShowRatingOnEvents(2));
+        // 20: reached again
+        assertTrue(decider.shouldShowRatingOnEvents(1));
+        assertEquals(20, store.getCountEvents());
+
+        // Empty batches are ignored
+        assertFalse(decider.shouldShowRatingOnEvents(0));
+        assertFalse(decider.shouldShowRatingOnEvents(-5));
+        assertEquals(20, store.getCountEvents());
+    }
+
+    @Test
+    public void weightsTheEventTypes()
+    {
+        // Each event of type 7 counts twice towards a threshold of 3
+        AppRaterConfig config = config(3, 2, 5).withEventType(7, 3, 2);
+        AppRaterDecider decider = store.createDecider(config);
+
+        assertFalse(decider.shouldShowRatingOnEvent(7));
+        assertTrue(decider.shouldShowRatingOnEvent(7));
+        assertTrue(decider.shouldShowRatingOnEvent(7));
+        assertFalse(decider.shouldShowRatingOnEvent(7));
+        assertTrue(decider.shouldShowRatingOnEvent(7));
+        assertEquals(10, store.getCountEvents(7));
+
+        // 10 + 2 * 2 = 14 passes 12
+        assertTrue(decider.shouldShowRatingOnEvents(7, 2));
+        // 16 passes 15, 18 reaches 18, 20 passes nothing
+        assertTrue(decider.shouldShowRatingOnEvent(7));
+        assertTrue(decider.shouldShowRatingOnEvent(7));
+        assertFalse(decider.shouldShowRatingOnEvent(7));
+
+        // Untyped events are counted separately
+        assertEquals(0, store.getCountEvents());
+    }
+
+    @Test
+    public void ignoresEventTypesBeyondTheCapacity()
+    {
+        AppRaterDecider decider = store.createDecider(config(3, 2, 1));
+        for (int type = 0; type < AppRaterMemoryStore.MAX_EVENT_TYPES; type++)
+        {
+            assertTrue(decider.shouldShowRatingOnEvent(type));
+        }
+
+        int type = AppRaterMemoryStore.MAX_EVENT_TYPES;
+        assertFalse(decider.shouldShowRatingOnEvent(type));
+        assertEquals(0, store.getCountEvents(type));
+
+        // The known types are still counted
+        assertTrue(decider.shouldShowRatingOnEvent(0));
+        assertEquals(2, store.getCountEvents(0));
+    }
+
+    @Test
+    public void countsNothingOnceDeclined()
+    {
+        AppRaterDecider decider = store.createDecider(config(1, 0, 1));
+        store.storeRatingDeclined();
+
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnEvent());
+        assertFalse(decider.shouldShowRatingOnEvent(1));
+        assertEquals(0, store.getCountOpened());
+        assertEquals(0, store.getCountEvents());
+    }
+
+    @Test
+    public void startsOverAfterRemindLater()
+    {
+        AppRaterDecider decider = store.createDecider(config(2, 1, 2));
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        store.advanceDays(1);
+        assertTrue(decider.shouldShowRatingOnStart(store.time));
+
+        store.storeToRateLater();
+        assertEquals(store.time, store.getStoredStartDate());
+        assertEquals(2, decider.getNextLaunchTrigger());
+
+        // The days count again from the remind later
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        store.advanceDays(1);
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertTrue(decider.shouldShowRatingOnStart(store.time));
+    }
+
+    @Test
+    public void requiresTheEngagement()
+    {
+        // At least 2 launches within the last day
+        AppRaterConfig config = config(1, 0, 1)
+                .withEngagement(AppRaterConfig.ENGAGEMENT_LAUNCHES, 2, 24);
+        AppRaterDecider decider = store.createDecider(config);
+
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        store.advanceHours(25);
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        store.advanceHours(1);
+        assertTrue(decider.shouldShowRatingOnStart(store.time));
+        assertTrue(decider.shouldShowRatingOnEvent());
+    }
+
+    @Test
+    public void replacesTheScheduleWithTheRule()
+    {
+        AppRaterConfig config = config(1, 0, 1)
+                .withRule(AppRaterRule.compile("on_event AND events >= 3"));
+        AppRaterDecider decider = store.createDecider(config);
+
+        assertFalse(decider.shouldShowRatingOnStart(store.time));
+        assertFalse(decider.shouldShowRatingOnEvent());
+        assertFalse(decider.shouldShowRatingOnEvents(1));
+        assertTrue(decider.shouldShowRatingOnEvent());
+        assertEquals(1, store.getCountOpened());
+    }
+
+    @Test
+    public void matchesTheBaselineOnRandomTraces()
+    {
+        Random random = new Random(42);
+        for (int trace = 0; trace < 200; trace++)
+        {
+            int launchBeforeRate = 1 + random.nextInt(6);
+            int daysBeforeRate = random.nextInt(4);
+            int eventsBeforeRate = 1 + random.nextInt(6);
+            store = new ManualClockStore(START_DATE);
+            AppRaterDecider decider = store.createDecider(config(launchBeforeRate, daysBeforeRate, eventsBeforeRate));
+            BaselineRater baseline = new BaselineRater(launchBeforeRate, daysBeforeRate, eventsBeforeRate);
+
+            for (int step = 0; step < 500; step++)
+            {
+                String context = "trace " + trace + " step " + step;
+                int action = random.nextInt(100);
+                if (action < 45)
+                {
+                    store.advanceHours(random.nextInt(30));
+                    assertEquals(context, baseline.shouldShowRatingOnStart(store.time), decider.shouldShowRatingOnStart(store.time));
+                }
+                else if (action < 94)
+                {
+                    assertEquals(context, baseline.shouldShowRatingOnEvent(store.time), decider.shouldShowRatingOnEvent());
+                }
+                else if (action < 97)
+                {
+                    baseline.storeToRateLater(store.time);
+                    store.storeToRateLater();
+                }
+                else if (action < 98)
+                {
+                    baseline.storeRated();
+                    store.storeRated();
+                }
+                else if (action < 99)
+                {
+                    baseline.storeRatingDeclined();
+                    store.storeRatingDeclined();
+                }
+                else
+                {
+                    baseline.reset();
+                    store.reset();
+                }
+
+                // Only the launches initialize the start date, the counters are left alone once rated
+                assertEquals(context, baseline.startDate, store.getStartDate());
+                if (!baseline.rated)
+                {
+                    assertEquals(context, baseline.countOpened, store.getCountOpened());
+                    assertEquals(context, baseline.countEvents, store.getCountEvents());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchesTheDefaultRuleOnRandomTraces()
+    {
+        Random random = new Random(7);
+        for (int trace = 0; trace < 200; trace++)
+        {
+            AppRaterConfig config = config(1 + random.nextInt(6), random.nextInt(4), 1 + random.nextInt(6));
+            if (random.nextBoolean())
+            {
+                config = config.withEngagement(AppRaterConfig.ENGAGEMENT_EVENTS, 1 + random.nextInt(3), 1 + random.nextInt(48));
+            }
+
+            // The same trace on the precomputed schedule and on the evaluated tree of the default rule
+            ManualClockStore scheduleStore = new ManualClockStore(START_DATE);
+            AppRaterDecider schedule = scheduleStore.createDecider(config);
+            ManualClockStore ruleStore = new ManualClockStore(START_DATE);
+            AppRaterDecider rule = ruleStore.createDecider(config.withRule(config.getDefaultRule()));
+
+            for (int step = 0; step < 500; step++)
+            {
+                String context = "trace " + trace + " step " + step + " " + config.getDefaultRule();
+                int action = random.nextInt(100);
+                if (action < 45)
+                {
+                    int hours = random.nextInt(30);
+                    scheduleStore.advanceHours(hours);
+                    ruleStore.advanceHours(hours);
+                    assertEquals(context, schedule.shouldShowRatingOnStart(scheduleStore.time), 
+                                 rule.shouldShowRatingOnStart(ruleStore.time));
+                }
+                else if (action < 95)
+                {
+                    assertEquals(context, schedule.shouldShowRatingOnEvent(), rule.shouldShowRatingOnEvent());
+                }
+                else if (action < 98)
+                {
+                    scheduleStore.storeToRateLater();
+                    ruleStore.storeToRateLater();
+                }
+                else
+                {
+                    scheduleStore.reset();
+                    ruleStore.reset();
+                }
+
+                assertEquals(context, scheduleStore.getStartDate(), ruleStore.getStartDate());
+                assertEquals(context, scheduleStore.getCountOpened(), ruleStore.getCountOpened());
+                assertEquals(context, scheduleStore.getCountEvents(), ruleStore.getCountEvents());
+            }
+        }
+    }
+
+    @Test
+    public void compilesTheDefaultRuleOfTheAmounts()
+    {
+        assertEquals("on_start AND launches % 4 == 0 AND days >= 4 OR on_event AND events % 2 == 0", 
+                     config(4, 4, 2).getDefaultRule().toString());
+    }
+
+    private static AppRaterConfig config(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate)
+    {
+        return new AppRaterConfig(launchBeforeRate, daysBeforeRate, eventsBeforeRate, false, false, AppRaterConfig.STORAGE_PREFERENCES);
+    }
+
+    /**
+     * The checks of the first releases of the app rater, before the schedule was precomputed.
+     */
+    private static final class BaselineRater
+    {
+        private final int launchBeforeRate;
+        private final int daysBeforeRate;
+        private final int eventsBeforeRate;
+
+        long              startDate;
+        int               countOpened;
+        int               countEvents;
+        boolean           rated;
+        boolean           declined;
+
+        BaselineRater(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate)
+        {
+            this.launchBeforeRate = launchBeforeRate;
+            this.daysBeforeRate = daysBeforeRate;
+            this.eventsBeforeRate = eventsBeforeRate;
+        }
+
+        boolean shouldShowRatingOnStart(long currentTime)
+        {
+            if (!declined)
+            {
+                countOpened++;
+            }
+            if (rated || declined)
+            {
+                return false;
+            }
+
+            if (startDate == 0)
+            {
+                startDate = currentTime;
+            }
+            if ((currentTime - startDate) / AppRaterDecider.MILLIS_PER_DAY < daysBeforeRate)
+            {
+                return false;
+            }
+            return countOpened % launchBeforeRate == 0;
+        }
+
+        boolean shouldShowRatingOnEvent(long currentTime)
+        {
+            if (!declined)
+            {
+                countEvents++;
+            }
+            if (rated || declined)
+            {
+                return false;
+            }
+            return countEvents % eventsBeforeRate == 0;
+        }
+
+        void storeToRateLater(long currentTime)
+        {
+            countOpened = 0;
+            countEvents = 0;
+            startDate = currentTime;
+        }
+
+        void storeRated()
+        {
+            rated = true;
+        }
+
+        void storeRatingDeclined()
+        {
+            countOpened = 0;
+            countEvents = 0;
+            startDate = 0;
+            declined = true;
+        }
+
+        void reset()
+        {
+            startDate = 0;
+            countOpened = 0;
+            countEvents = 0;
+            rated = false;
+            declined = false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests of the fixed-size table of the event type counters.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterEventCountsTest
+{
+    @Test
+    public void countsEachTypeSeparately()
+    {
+        AppRaterEventCounts counts = new AppRaterEventCounts();
+        assertEquals(2, counts.add(7, 2));
+        assertEquals(1, counts.add(-3, 1));
+        assertEquals(5, counts.add(7, 3));
+
+        assertEquals(5, counts.get(7));
+        assertEquals(1, counts.get(-3));
+        assertEquals(0, counts.get(8));
+    }
+
+    @Test
+    public void ignoresTypesBeyondTheCapacity()
+    {
+        AppRaterEventCounts counts = new AppRaterEventCounts();
+        for (int type = 0; type < AppRaterEventCounts.CAPACITY; type++)
+        {
+            assertEquals(1, counts.add(type, 1));
+        }
+
+        // The table is full, further types are not counted
+        assertEquals(-1, counts.add(AppRaterEventCounts.CAPACITY, 1));
+        assertEquals(-1, counts.add(AppRaterEventCounts.CAPACITY + 1, 1, 1000));
+        assertEquals(0, counts.get(AppRaterEventCounts.CAPACITY));
+        assertEquals(0, counts.getTime(AppRaterEventCounts.CAPACITY + 1));
+
+        // The known types are still counted
+        assertEquals(2, counts.add(AppRaterEventCounts.CAPACITY - 1, 1));
+
+        int[] ids = new int[AppRaterEventCounts.CAPACITY];
+        int[] values = new int[AppRaterEventCounts.CAPACITY];
+        long[] times = new long[AppRaterEventCounts.CAPACITY];
+        assertEquals(AppRaterEventCounts.CAPACITY, counts.copyTo(ids, values, times));
+    }
+
+    @Test
+    public void rejectsTheMarkerOfFreeSlots()
+    {
+        AppRaterEventCounts counts = new AppRaterEventCounts();
+        assertEquals(-1, counts.add(Integer.MIN_VALUE, 1));
+        assertEquals(0, counts.get(Integer.MIN_VALUE));
+    }
+
+    @Test
+    public void clearKeepsTheTimesOfTheLastEvents()
+    {
+        AppRaterEventCounts counts = new AppRaterEventCounts();
+        counts.add(1, 4, 2000);
+        counts.add(1, 1, 1000);
+        assertEquals(2000, counts.getTime(1));
+
+        counts.clear();
+        assertEquals(0, counts.get(1));
+        assertEquals(2000, counts.getTime(1));
+
+        // Types with only a time are still copied
+        int[] ids = new int[AppRaterEventCounts.CAPACITY];
+        int[] values = new int[AppRaterEventCounts.CAPACITY];
+        long[] times = new long[AppRaterEventCounts.CAPACITY];
+        assertEquals(1, counts.copyTo(ids, values, times));
+        assertEquals(0, values[0]);
+
+        counts.clearAll();
+        assertEquals(0, counts.getTime(1));
+        assertEquals(0, counts.copyTo(ids, values, times));
+    }
+}
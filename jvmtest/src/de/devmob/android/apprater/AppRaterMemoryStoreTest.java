@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.Test;
+
+/**
+ * Tests of the counting of the in memory store from several threads at once.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterMemoryStoreTest
+{
+    private static final int THREADS    = 8;
+    private static final int INCREMENTS = 10000;
+
+    @Test
+    public void countsEachIncrementOfConcurrentThreadsOnce() throws Exception
+    {
+        final AppRaterMemoryStore store = new AppRaterMemoryStore();
+        // Each returned count has to be seen by exactly one caller
+        final AtomicIntegerArray seenOpened = new AtomicIntegerArray(THREADS * INCREMENTS + 1);
+        final AtomicIntegerArray seenEvents = new AtomicIntegerArray(THREADS * INCREMENTS + 1);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[THREADS];
+        for (int index = 0; index < THREADS; index++)
+        {
+            threads[index] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    for (int count = 0; count < INCREMENTS; count++)
+                    {
+                        seenOpened.incrementAndGet(store.increaseCountOpened());
+                        seenEvents.incrementAndGet(store.increaseCountEvents());
+                        store.increaseCountEvents(7, 2);
+                        store.getStoredStartDate();
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(THREADS * INCREMENTS, store.getCountOpened());
+        assertEquals(THREADS * INCREMENTS, store.getCountEvents());
+        assertEquals(THREADS * INCREMENTS * 2, store.getCountEvents(7));
+        for (int count = 1; count <= THREADS * INCREMENTS; count++)
+        {
+            assertEquals("launch " + count, 1, seenOpened.get(count));
+            assertEquals("event " + count, 1, seenEvents.get(count));
+        }
+        assertTrue(store.getStoredStartDate() > 0);
+    }
+}
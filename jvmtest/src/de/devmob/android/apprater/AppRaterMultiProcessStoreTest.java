@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests of the store shared by several processes, each simulated by its own store on the same file.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterMultiProcessStoreTest
+{
+    private static final long     START_DATE = 1700000000000L;
+
+    @Rule
+    public final TemporaryFolder  folder     = new TemporaryFolder();
+
+    @Test
+    public void importsTheStateOnlyOnce()
+    {
+        File file = new File(folder.getRoot(), "apprater.shared");
+        AppRaterMultiProcessStore first = new AppRaterMultiProcessStore(file, 0);
+        AppRaterMultiProcessStore second = new AppRaterMultiProcessStore(file, 0);
+        assertFalse(first.hasStoredState());
+        assertFalse(second.hasStoredState());
+
+        AppRaterMemoryStore source = new AppRaterMemoryStore();
+        source.setState(START_DATE, 5, 2, false, false);
+        assertTrue(first.importState(source));
+        assertTrue(first.hasStoredState());
+
+        // The other process decided too late and takes over the imported state
+        AppRaterMemoryStore otherSource = new AppRaterMemoryStore();
+        otherSource.setState(START_DATE + 1, 9, 9, false, false);
+        assertFalse(second.importState(otherSource));
+        assertTrue(second.hasStoredState());
+        assertEquals(START_DATE, second.getStoredStartDate());
+        assertEquals(5, second.getCountOpened());
+
+        assertTrue(new AppRaterMultiProcessStore(file, 0).hasStoredState());
+    }
+
+    @Test
+    public void importsTheBinaryFileOfASingleProcess()
+    {
+        File legacyFile = new File(folder.getRoot(), "apprater.bin");
+        AppRaterFileStore legacy = new AppRaterFileStore(legacyFile, false);
+        legacy.setState(START_DATE, 7, 3, false, true);
+        legacy.increaseCountEvents(5, 2);
+        legacy.flush();
+
+        File file = new File(folder.getRoot(), "apprater.shared");
+        AppRaterMultiProcessStore store = new AppRaterMultiProcessStore(file, 0);
+        assertTrue(store.importState(legacyFile));
+        assertFalse(legacyFile.exists());
+        assertTrue(store.hasStoredState());
+
+        AppRaterMultiProcessStore check = new AppRaterMultiProcessStore(file, 0);
+        assertEquals(START_DATE, check.getStoredStartDate());
+        assertEquals(7, check.getCountOpened());
+        assertEquals(3, check.getCountEvents());
+        assertEquals(2, check.getCountEvents(5));
+        assertTrue(check.isRatingRequestDeclined());
+
+        // Nothing to import anymore
+        assertFalse(check.importState(legacyFile));
+    }
+
+    @Test
+    public void mergesTheLastChangeAfterTheInterval() throws Exception
+    {
+        File file = new File(folder.getRoot(), "apprater.shared");
+        AppRaterMultiProcessStore store = new AppRaterMultiProcessStore(file, 50);
+        store.increaseCountOpened();
+        store.increaseCountOpened();
+
+        // The shared thread runs the delayed tasks in order of their time, so the merge is done after this one
+        AppRaterMemoryStore.getFlushExecutor().schedule(new Runnable()
+        {
+            public void run()
+            {
+                // Nothing, only waits for the scheduled merge
+            }
+        }, 100, TimeUnit.MILLISECONDS).get();
+
+        assertEquals(2, new AppRaterMultiProcessStore(file, 0).getCountOpened());
+    }
+
+    @Test
+    public void mergesTheCountsOfAllProcesses() throws Exception
+    {
+        File file = new File(folder.getRoot(), "apprater.shared");
+        AppRaterMultiProcessStore first = new AppRaterMultiProcessStore(file, Long.MAX_VALUE);
+        AppRaterMultiProcessStore second = new AppRaterMultiProcessStore(file, Long.MAX_VALUE);
+
+        first.increaseCountOpened();
+        first.increaseCountOpened();
+        second.increaseCountOpened();
+        first.flush();
+        second.flushInBackground();
+
+        // The background flush runs on the shared thread, wait for it with an empty task on the same thread
+        AppRaterMemoryStore.getFlushExecutor().submit(new Runnable()
+        {
+            public void run()
+            {
+                // Nothing, only waits for the queued flush
+            }
+        }).get();
+
+        AppRaterMultiProcessStore check = new AppRaterMultiProcessStore(file, 0);
+        check.flush();
+        assertEquals(3, check.getCountOpened());
+    }
+}
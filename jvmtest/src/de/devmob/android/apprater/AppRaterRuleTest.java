@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of the grammar and the evaluation of the rating rules.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterRuleTest
+{
+    private static final long START_DATE = 1700000000000L;
+
+    private ManualClockStore  store;
+
+    @Before
+    public void setUp()
+    {
+        // 10 launches, 3 events, started 5 days ago
+        store = new ManualClockStore(START_DATE);
+        store.setState(START_DATE, 10, 3, false, false);
+        store.advanceDays(5);
+    }
+
+    @Test
+    public void comparesTheCounters()
+    {
+        assertRule(true, "launches >= 10");
+        assertRule(false, "launches > 10");
+        assertRule(true, "launches <= 10");
+        assertRule(false, "launches < 10");
+        assertRule(true, "events == 3");
+        assertRule(false, "events != 3");
+        assertRule(true, "days == 5");
+        assertRule(true, "launches % 5 == 0");
+        assertRule(false, "launches % 4 == 0");
+    }
+
+    @Test
+    public void andBindsStrongerThanOr()
+    {
+        assertRule(true, "launches < 5 AND events < 1 OR days >= 5");
+        assertRule(true, "days >= 5 OR launches < 5 AND events < 1");
+        assertRule(false, "(days >= 5 OR launches < 5) AND events < 1");
+        assertRule(false, "NOT days >= 5 OR launches < 5 AND events < 1");
+        assertRule(true, "NOT (launches < 5 AND events < 1)");
+        assertRule(true, "NOT NOT launches == 10");
+    }
+
+    @Test
+    public void acceptsSymbolsAndLowerCaseKeywords()
+    {
+        assertRule(true, "launches>=10&&events==3");
+        assertRule(true, "launches < 5 || !(events != 3)");
+        assertRule(true, "launches >= 10 and not events > 3 or days < 1");
+    }
+
+    @Test
+    public void distinguishesStartAndEvent()
+    {
+        AppRaterRule rule = AppRaterRule.compile("on_start AND launches >= 10 OR on_event AND events >= 3");
+        assertTrue(rule.test(store, store.time, true));
+        assertTrue(rule.test(store, store.time, false));
+
+        rule = AppRaterRule.compile("on_start");
+        assertTrue(rule.test(store, store.time, true));
+        assertFalse(rule.test(store, store.time, false));
+    }
+
+    @Test
+    public void readsTheEventTypes()
+    {
+        store.increaseCountEvents(3, 2);
+        assertRule(true, "event:3 == 2");
+        assertRule(true, "event:4 == 0");
+        assertRule(true, "event:-1 == 0");
+
+        // Without any event the days since are very large
+        assertRule(true, "days_since:4 >= 100000");
+        assertRule(true, "days_since:3 == 0");
+        store.advanceDays(2);
+        assertRule(true, "days_since:3 == 2");
+    }
+
+    @Test
+    public void readsTheRecentCounts()
+    {
+        store.increaseCountOpened();
+        store.increaseCountEvents();
+        store.advanceHours(30);
+        store.increaseCountOpened();
+
+        assertRule(true, "launches_within:24h == 1");
+        assertRule(true, "launches_within:2d == 2");
+        assertRule(true, "launches_within:48 == 2");
+        assertRule(true, "events_within:7d == 1");
+        assertRule(true, "events_within:1h == 0");
+    }
+
+    @Test
+    public void keepsTheSource()
+    {
+        String source = "launches >= 10 AND days >= 3";
+        assertEquals(source, AppRaterRule.compile(source).toString());
+    }
+
+    @Test
+    public void rejectsBrokenRules()
+    {
+        assertBroken("", "Expected a variable at position 0");
+        assertBroken("launches", "Expected an operator at position 8");
+        assertBroken("launches >= ", "Expected a number at position 12");
+        assertBroken("launches >= ten", "Expected a number instead of ten at position 12");
+        assertBroken("launches = 4", "Unexpected = at position 9");
+        assertBroken("launches % 0 == 0", "Modulo has to be positive");
+        assertBroken("visits >= 4", "Unknown variable visits at position 0");
+        assertBroken("launches:3 >= 4", "Unknown variable launches:3");
+        assertBroken("event:x >= 1", "Broken number in event:x");
+        assertBroken("launches_within:8d >= 1", "Broken number in launches_within:8d");
+        assertBroken("launches_within:0h >= 1", "Broken number");
+        assertBroken("(launches >= 4", "Expected ) at position 14");
+        assertBroken("launches >= 4)", "Unexpected ) at position 13");
+        assertBroken("launches >= 4 days >= 2", "Unexpected days at position 14");
+    }
+
+    private void assertRule(boolean expected, String source)
+    {
+        AppRaterRule rule = AppRaterRule.compile(source);
+        assertEquals(source, expected, rule.test(store, store.time, true));
+    }
+
+    private static void assertBroken(String source, String message)
+    {
+        try
+        {
+            AppRaterRule.compile(source);
+        }
+        catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+            assertTrue(e.getMessage(), e.getMessage().endsWith("of rule: " + source));
+            return;
+        }
+        fail("Expected an IllegalArgumentException for " + source);
+    }
+}
@@ -0,0 +1,482 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.zip.CRC32;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests of the binary state file: round trips, the layouts of older versions and the fallback
+ * to the other slot in case of a corrupt one. Run with and without the memory mapped buffer.
+ *
+ * @author Friederike Wild
+ */
+@RunWith(Parameterized.class)
+public class AppRaterStateFileTest
+{
+    private static final int     MAGIC      = 0x44415253;
+    private static final long    START_DATE = 1700000000000L;
+    /** Offset of the count of launches in the first slot of the current version. */
+    private static final int     COUNT_OPENED_OFFSET = 24;
+
+    @Rule
+    public final TemporaryFolder folder     = new TemporaryFolder();
+
+    private final boolean        memoryMapped;
+    private File                 file;
+    private AppRaterStateFile    stateFile;
+
+    @Parameters(name = "memoryMapped={0}")
+    public static Collection<Object[]> parameters()
+    {
+        return Arrays.asList(new Object[][] { { false }, { true } });
+    }
+
+    public AppRaterStateFileTest(boolean memoryMapped)
+    {
+        this.memoryMapped = memoryMapped;
+    }
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = new File(folder.getRoot(), "apprater.state");
+        stateFile = new AppRaterStateFile(file, memoryMapped);
+    }
+
+    @After
+    public void tearDown()
+    {
+        stateFile.close();
+    }
+
+    @Test
+    public void readsNothingWithoutFile()
+    {
+        assertFalse(stateFile.exists());
+        assertFalse(stateFile.read());
+        assertEquals(0, stateFile.getStartDate());
+        assertEquals(0, stateFile.getCountOpened());
+    }
+
+    @Test
+    public void readsTheWrittenState()
+    {
+        AppRaterTimeBuckets recentOpened = new AppRaterTimeBuckets();
+        recentOpened.add(START_DATE, 3);
+        AppRaterTimeBuckets recentEvents = new AppRaterTimeBuckets();
+        recentEvents.add(START_DATE + AppRaterTimeBuckets.MILLIS_PER_HOUR, 5);
+
+        assertTrue(stateFile.write(START_DATE, 7, 11, false, true, new int[] { 4, -2 }, new int[] { 9, 1 }, 
+                                   new long[] { START_DATE + 1, START_DATE + 2 }, 2, recentOpened, recentEvents, 3, true));
+        stateFile.close();
+
+        AppRaterStateFile other = new AppRaterStateFile(file, memoryMapped);
+        try
+        {
+            assertTrue(other.read());
+            assertEquals(START_DATE, other.getStartDate());
+            assertEquals(7, other.getCountOpened());
+            assertEquals(11, other.getCountEvents());
+            assertFalse(other.isRated());
+            assertTrue(other.isDeclined());
+            assertEquals(2, other.getEventTypeCount());
+            assertEquals(4, other.getEventId(0));
+            assertEquals(9, other.getEventCount(0));
+            assertEquals(-2, other.getEventId(1));
+            assertEquals(1, other.getEventCount(1));
+            assertEquals(START_DATE + 2, other.getEventTime(1));
+            assertEquals(3, other.getEpoch());
+
+            long now = START_DATE + AppRaterTimeBuckets.MILLIS_PER_HOUR;
+            assertEquals(3, sumOpened(other, now));
+            assertEquals(5, sumEvents(other, now));
+        }
+        finally
+        {
+            other.close();
+        }
+    }
+
+    @Test
+    public void readsTheNewestOfSeveralWrites()
+    {
+        for (int count = 1; count <= 5; count++)
+        {
+            assertTrue(stateFile.write(START_DATE, count, 0, false, false, false));
+        }
+        assertEquals(2 * AppRaterStateFile.SLOT_SIZE, file.length());
+
+        stateFile.close();
+        assertTrue(stateFile.read());
+        assertEquals(5, stateFile.getCountOpened());
+
+        // Writing again without reading first continues with the other slot
+        stateFile.close();
+        assertTrue(stateFile.write(START_DATE, 6, 0, false, false, false));
+        assertTrue(stateFile.read());
+        assertEquals(6, stateFile.getCountOpened());
+    }
+
+    @Test
+    public void rejectsTooManyEventTypes()
+    {
+        int count = AppRaterStateFile.MAX_EVENT_TYPES + 1;
+        try
+        {
+            stateFile.write(START_DATE, 0, 0, false, false, new int[count], new int[count], count, null, null, false);
+        }
+        catch (IllegalArgumentException e)
+        {
+            return;
+        }
+        throw new AssertionError("Expected an IllegalArgumentException");
+    }
+
+    @Test
+    public void fallsBackToThePreviousStateOnCorruptSlot() throws IOException
+    {
+        // The fourth write ends in the second slot, the first slot holds the third
+        for (int count = 1; count <= 4; count++)
+        {
+            assertTrue(stateFile.write(START_DATE, count, 0, false, false, true));
+        }
+        stateFile.close();
+
+        corrupt(AppRaterStateFile.SLOT_SIZE + COUNT_OPENED_OFFSET);
+        assertTrue(stateFile.read());
+        assertEquals(3, stateFile.getCountOpened());
+
+        // The next write replaces the corrupt slot, the valid one is kept
+        assertTrue(stateFile.write(START_DATE, 5, 0, true, false, true));
+        stateFile.close();
+        assertTrue(stateFile.read());
+        assertEquals(5, stateFile.getCountOpened());
+        assertTrue(stateFile.isRated());
+
+        stateFile.close();
+        corrupt(AppRaterStateFile.SLOT_SIZE + COUNT_OPENED_OFFSET);
+        assertTrue(stateFile.read());
+        assertEquals(3, stateFile.getCountOpened());
+        assertFalse(stateFile.isRated());
+    }
+
+    @Test
+    public void readsNothingWhenBothSlotsAreCorrupt() throws IOException
+    {
+        assertTrue(stateFile.write(START_DATE, 1, 0, false, false, true));
+        assertTrue(stateFile.write(START_DATE, 2, 0, false, false, true));
+        stateFile.close();
+
+        corrupt(COUNT_OPENED_OFFSET);
+        corrupt(AppRaterStateFile.SLOT_SIZE + COUNT_OPENED_OFFSET);
+        assertFalse(stateFile.read());
+        assertEquals(0, stateFile.getStartDate());
+        assertEquals(0, stateFile.getCountOpened());
+
+        // Writing starts over
+        assertTrue(stateFile.write(START_DATE, 1, 0, false, false, true));
+        stateFile.close();
+        assertTrue(stateFile.read());
+        assertEquals(1, stateFile.getCountOpened());
+    }
+
+    @Test
+    public void readsVersion1() throws IOException
+    {
+        writeLegacy(1);
+        assertTrue(stateFile.read());
+        assertLegacyCounters();
+        assertEquals(0, stateFile.getEventTypeCount());
+        assertEquals(0, stateFile.getEpoch());
+    }
+
+    @Test
+    public void readsVersion2() throws IOException
+    {
+        writeLegacy(2);
+        assertTrue(stateFile.read());
+        assertLegacyCounters();
+        assertLegacyEventTypes();
+        assertEquals(0, sumOpened(stateFile, START_DATE));
+    }
+
+    @Test
+    public void readsVersion3() throws IOException
+    {
+        writeLegacy(3);
+        assertTrue(stateFile.read());
+        assertLegacyCounters();
+        assertLegacyEventTypes();
+        assertEquals(6, sumOpened(stateFile, START_DATE));
+        assertEquals(8, sumEvents(stateFile, START_DATE));
+        assertEquals(0, stateFile.getEpoch());
+    }
+
+    @Test
+    public void readsVersion4() throws IOException
+    {
+        writeLegacy(4);
+        assertTrue(stateFile.read());
+        assertLegacyCounters();
+        assertEquals(6, sumOpened(stateFile, START_DATE));
+        assertEquals(2, stateFile.getEpoch());
+        assertEquals(0, stateFile.getEventTime(0));
+    }
+
+    @Test
+    public void readsVersion5() throws IOException
+    {
+        writeLegacy(5);
+        assertTrue(stateFile.read());
+        assertLegacyCounters();
+        assertLegacyEventTypes();
+        assertEquals(2, stateFile.getEpoch());
+        assertEquals(START_DATE + 100, stateFile.getEventTime(0));
+        assertEquals(START_DATE + 200, stateFile.getEventTime(1));
+    }
+
+    @Test
+    public void rejectsLegacyFileWithWrongChecksum() throws IOException
+    {
+        writeLegacy(5);
+        corrupt(12);
+        assertFalse(stateFile.read());
+    }
+
+    @Test
+    public void keepsTheLegacyStateTillTheMigratedOneIsComplete() throws IOException
+    {
+        for (int version = 1; version <= 5; version++)
+        {
+            stateFile.close();
+            writeLegacy(version);
+
+            assertTrue(stateFile.read());
+            assertTrue(stateFile.write(START_DATE, 10, 20, true, false, true));
+            stateFile.close();
+
+            assertTrue(stateFile.read());
+            assertEquals(10, stateFile.getCountOpened());
+            assertTrue(stateFile.isRated());
+
+            // A torn migration leaves the old state readable
+            stateFile.close();
+            corrupt(AppRaterStateFile.SLOT_SIZE + COUNT_OPENED_OFFSET);
+            assertTrue(stateFile.read());
+            assertLegacyCounters();
+        }
+    }
+
+    @Test
+    public void writesOnlyTheChangedSlot() throws IOException
+    {
+        assertTrue(stateFile.write(START_DATE, 1, 0, false, false, true));
+        assertTrue(stateFile.write(START_DATE, 2, 0, false, false, true));
+        byte[] before = readFile();
+
+        assertTrue(stateFile.write(START_DATE, 3, 0, false, false, true));
+        byte[] after = readFile();
+
+        // The newest state in the second slot is untouched, only the counter, checksum and sequence differ
+        int changed = 0;
+        for (int index = 0; index < before.length; index++)
+        {
+            if (before[index] != after[index])
+            {
+                assertTrue("Changed byte " + index + " in the second slot", index < AppRaterStateFile.SLOT_SIZE);
+                changed++;
+            }
+        }
+        assertTrue("Changed " + changed + " bytes", changed > 0 && changed <= 12);
+    }
+
+    private void assertLegacyCounters()
+    {
+        assertEquals(START_DATE, stateFile.getStartDate());
+        assertEquals(3, stateFile.getCountOpened());
+        assertEquals(5, stateFile.getCountEvents());
+        assertTrue(stateFile.isRated());
+        assertFalse(stateFile.isDeclined());
+    }
+
+    private void assertLegacyEventTypes()
+    {
+        assertEquals(2, stateFile.getEventTypeCount());
+        assertEquals(7, stateFile.getEventId(0));
+        assertEquals(1, stateFile.getEventCount(0));
+        assertEquals(8, stateFile.getEventId(1));
+        assertEquals(4, stateFile.getEventCount(1));
+    }
+
+    /**
+     * Write a file in the layout of an older version: a single slot with a header of magic, version and 
+     * checksum of the payload.
+     * 
+     * @param version
+     * @throws IOException
+     */
+    private void writeLegacy(int version) throws IOException
+    {
+        ByteBuffer payload = ByteBuffer.allocate(2000);
+        payload.putLong(START_DATE);
+        payload.putInt(3);
+        payload.putInt(5);
+        payload.putInt(1);
+
+        if (version > 1)
+        {
+            payload.putInt(2);
+            int[] types = new int[AppRaterStateFile.MAX_EVENT_TYPES * 2];
+            types[0] = 7;
+            types[1] = 1;
+            types[2] = 8;
+            types[3] = 4;
+            for (int value : types)
+            {
+                payload.putInt(value);
+            }
+        }
+
+        if (version > 2)
+        {
+            AppRaterTimeBuckets recentOpened = new AppRaterTimeBuckets();
+            recentOpened.add(START_DATE, 6);
+            AppRaterTimeBuckets recentEvents = new AppRaterTimeBuckets();
+            recentEvents.add(START_DATE, 8);
+            putBuckets(payload, recentOpened);
+            putBuckets(payload, recentEvents);
+        }
+
+        if (version > 3)
+        {
+            payload.putInt(2);
+        }
+
+        if (version > 4)
+        {
+            payload.putLong(START_DATE + 100);
+            payload.putLong(START_DATE + 200);
+            for (int index = 2; index < AppRaterStateFile.MAX_EVENT_TYPES; index++)
+            {
+                payload.putLong(0);
+            }
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(payload.array(), 0, payload.position());
+
+        ByteBuffer content = ByteBuffer.allocate(12 + payload.position());
+        content.putInt(MAGIC);
+        content.putInt(version);
+        content.putInt((int) checksum.getValue());
+        content.put(payload.array(), 0, payload.position());
+
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(content.array());
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static void putBuckets(ByteBuffer target, AppRaterTimeBuckets buckets)
+    {
+        int[] counts = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+        target.putLong(buckets.copyTo(counts));
+        for (int count : counts)
+        {
+            target.putInt(count);
+        }
+    }
+
+    private static int sumOpened(AppRaterStateFile stateFile, long time)
+    {
+        AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        stateFile.copyRecentOpenedTo(buckets);
+        return buckets.sum(time, AppRaterTimeBuckets.BUCKET_COUNT);
+    }
+
+    private static int sumEvents(AppRaterStateFile stateFile, long time)
+    {
+        AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        stateFile.copyRecentEventsTo(buckets);
+        return buckets.sum(time, AppRaterTimeBuckets.BUCKET_COUNT);
+    }
+
+    /**
+     * Flip the bits of a single byte of the file, as a torn write would leave it.
+     * 
+     * @param offset
+     * @throws IOException
+     */
+    private void corrupt(int offset) throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try
+        {
+            randomAccessFile.seek(offset);
+            int value = randomAccessFile.read();
+            randomAccessFile.seek(offset);
+            randomAccessFile.write(~value);
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+
+    private byte[] readFile() throws IOException
+    {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try
+        {
+            byte[] content = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(content);
+            return content;
+        }
+        finally
+        {
+            randomAccessFile.close();
+        }
+    }
+}
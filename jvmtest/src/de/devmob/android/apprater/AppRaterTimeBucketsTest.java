@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests of the hourly buckets of the recent counts.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterTimeBucketsTest
+{
+    private static final long HOUR  = AppRaterTimeBuckets.MILLIS_PER_HOUR;
+    private static final long START = 470000 * HOUR;
+
+    @Test
+    public void sumsTheWindow()
+    {
+        AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        buckets.add(START, 1);
+        buckets.add(START + 10 * HOUR, 2);
+        buckets.add(START + 30 * HOUR, 4);
+
+        long now = START + 30 * HOUR;
+        assertEquals(4, buckets.sum(now, 1));
+        assertEquals(6, buckets.sum(now, 24));
+        assertEquals(7, buckets.sum(now, 31));
+        assertEquals(7, buckets.sum(now, AppRaterTimeBuckets.BUCKET_COUNT));
+    }
+
+    @Test
+    public void dropsTheBucketsOutOfTheWindow()
+    {
+        AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        buckets.add(START, 1);
+        buckets.add(START + HOUR, 2);
+
+        long now = START + AppRaterTimeBuckets.BUCKET_COUNT * HOUR;
+        buckets.add(now, 4);
+        assertEquals(6, buckets.sum(now, AppRaterTimeBuckets.BUCKET_COUNT));
+
+        // Older than the window
+        buckets.add(START, 8);
+        assertEquals(6, buckets.sum(now, AppRaterTimeBuckets.BUCKET_COUNT));
+
+        // Far ahead clears all
+        now += 2 * AppRaterTimeBuckets.BUCKET_COUNT * HOUR;
+        buckets.add(now, 1);
+        assertEquals(1, buckets.sum(now, AppRaterTimeBuckets.BUCKET_COUNT));
+    }
+
+    @Test
+    public void keepsTheBucketsOnCopy()
+    {
+        AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        buckets.add(START, 3);
+        buckets.add(START + 5 * HOUR, 5);
+
+        int[] counts = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+        AppRaterTimeBuckets copy = new AppRaterTimeBuckets();
+        copy.set(buckets.copyTo(counts), counts);
+        assertEquals(8, copy.sum(START + 5 * HOUR, 6));
+
+        AppRaterTimeBuckets merged = new AppRaterTimeBuckets();
+        merged.add(START + 5 * HOUR, 1);
+        buckets.addTo(merged);
+        assertEquals(9, merged.sum(START + 5 * HOUR, 6));
+    }
+
+    @Test
+    public void countsConcurrentAddsAcrossHours() throws InterruptedException
+    {
+        final AppRaterTimeBuckets buckets = new AppRaterTimeBuckets();
+        final int adds = 20000;
+        Thread[] threads = new Thread[4];
+        for (int index = 0; index < threads.length; index++)
+        {
+            threads[index] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    for (int add = 0; add < adds; add++)
+                    {
+                        // Move through 10 hours while adding
+                        buckets.add(START + (add * 10L / adds) * HOUR, 1);
+                    }
+                }
+            };
+            threads[index].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals(threads.length * adds, buckets.sum(START + 10 * HOUR, AppRaterTimeBuckets.BUCKET_COUNT));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Memory store on a clock that is only advanced by the test.
+ *
+ * @author Friederike Wild
+ */
+class ManualClockStore extends AppRaterMemoryStore
+{
+    /** The current time in millis. */
+    long time;
+
+    ManualClockStore(long time)
+    {
+        this.time = time;
+    }
+
+    void advanceHours(int hours)
+    {
+        time += hours * 60L * 60 * 1000;
+    }
+
+    void advanceDays(int days)
+    {
+        time += days * AppRaterDecider.MILLIS_PER_DAY;
+    }
+
+    /**
+     * Create a decider for this store that uses the same clock on events.
+     * 
+     * @param config
+     * @return The decider.
+     */
+    AppRaterDecider createDecider(AppRaterConfig config)
+    {
+        return new AppRaterDecider(this, config)
+        {
+            @Override
+            protected long currentTimeMillis()
+            {
+                return time;
+            }
+        };
+    }
+
+    @Override
+    protected long currentTimeMillis()
+    {
+        return time;
+    }
+}
@@ -19,16 +19,25 @@
 package de.devmob.android.apprater;
 
 import android.app.AlertDialog;
+import android.app.Application;
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
 import android.content.Context;
+import android.content.ActivityNotFoundException;
 import android.content.DialogInterface;
-import android.content.Intent;
 import android.content.DialogInterface.OnClickListener;
 import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
-import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 
 /**
  * Class to use the app rater component.
@@ -66,9 +75,91 @@ public class AppRater
      */
     public static final String   META_CONFIG_VERBOSE            = "de.devmob.verbose";
 
+    /** 
+     * Meta key to configure if counter changes should only be written in batches in the background.
+     * Decisions of the user are always written immediately.
+     *  
+     * <meta-data android:name="de.devmob.write_behind" android:value="true" />
+     */
+    public static final String   META_CONFIG_WRITE_BEHIND       = "de.devmob.write_behind";
+
+    /** 
+     * Meta key to configure where the app rater state is stored. Possible values are "preferences" (default),
+     * "binary" for a compact binary file, "mapped" for a binary file accessed via a memory mapped buffer and 
+     * "multiprocess" for a binary file shared by all processes of the app, see {@link AppRaterMultiProcessStore}.
+     * Existing values of the preferences are migrated to the binary file once.
+     *  
+     * <meta-data android:name="de.devmob.storage" android:value="binary" />
+     */
+    public static final String   META_CONFIG_STORAGE            = "de.devmob.storage";
+
+    /** 
+     * Meta key to configure the markets to rate in, as comma separated list in the order they should be tried.
+     * The first market that can be opened on the device is used. Possible values are "play", "amazon", "samsung",
+     * "custom" for the url configured via {@link #META_CONFIG_MARKET_URL} and "web" for the Google Play web page.
+     * Defaults to "play,web".
+     *  
+     * <meta-data android:name="de.devmob.markets" android:value="amazon,play,web" />
+     */
+    public static final String   META_CONFIG_MARKETS            = "de.devmob.markets";
+
+    /** 
+     * Meta key to configure the url of the "custom" market. The placeholder {} is replaced by the package name.
+     *  
+     * <meta-data android:name="de.devmob.market_url" android:value="https://example.com/rate?app={}" />
+     */
+    public static final String   META_CONFIG_MARKET_URL         = "de.devmob.market_url";
+
+    /** 
+     * Meta key to configure the named event types, as comma separated list of "type:threshold" or "type:threshold:weight".
+     * Each event of a type adds its weight (default 1) to the count of the type, and the rating dialog is requested
+     * whenever the count reaches a multiple of the threshold. Types that are not configured use the amount of
+     * {@link #META_CONFIG_EVENTS_BEFORE_RATE} as threshold. See {@link #checkToShowRatingOnEvent(int)}.
+     *  
+     * <meta-data android:name="de.devmob.event_types" android:value="1:10,2:3:2" />
+     */
+    public static final String   META_CONFIG_EVENT_TYPES        = "de.devmob.event_types";
+
+    /** 
+     * Meta key to configure engagement conditions that all have to be met before the rating dialog is shown,
+     * as comma separated list of "launches:count:window" or "events:count:window". The window is given in 
+     * hours ("48h") or days ("7d") up to now, at most 7 days. Example: at least 5 launches within the last 7 days
+     * and 3 positive events within the last 48 hours.
+     *  
+     * <meta-data android:name="de.devmob.engagement" android:value="launches:5:7d,events:3:48h" />
+     */
+    public static final String   META_CONFIG_ENGAGEMENT         = "de.devmob.engagement";
+
+    /** 
+     * Meta key to configure the seconds the app has to be in the background before it counts as launched again.
+     * Only used while the sessions are tracked, see {@link #trackSessions(Application)}. Defaults to 30 seconds.
+     *  
+     * <meta-data android:name="de.devmob.session_timeout" android:value="60" />
+     */
+    public static final String   META_CONFIG_SESSION_TIMEOUT    = "de.devmob.session_timeout";
+
+    /** 
+     * Meta key to configure a rule that replaces the built-in launch, day and event checks, e.g. to combine 
+     * several conditions. See {@link AppRaterRule} for the syntax. Longer rules can be kept in a string resource 
+     * referenced via android:resource. A broken rule is ignored and the built-in checks are used.
+     *  
+     * <meta-data android:name="de.devmob.rule" android:value="(launches >= 10 AND days >= 3) OR event:2 >= 1" />
+     * <meta-data android:name="de.devmob.rule" android:resource="@string/rating_rule" />
+     */
+    public static final String   META_CONFIG_RULE               = "de.devmob.rule";
+
+    /** 
+     * Name of the configuration class generated at build time by the apprater_config.gradle script. 
+     * In case the class is part of the app, its values are used and the meta data is not read at all.
+     */
+    static final String          GENERATED_CONFIG_CLASS         = "de.devmob.android.apprater.AppRaterGeneratedConfig";
+
     /** Logging tag for the app rater component */
     public static final String   LOG_TAG                        = "devmob_apprater";
 
+    /** Name of the state file shared by all processes inside the apps files directory. */
+    private static final String  MULTI_PROCESS_FILE_NAME        = "de.devmob.APPRATER.shared.bin";
+
     /** Flag to turn of the app rater is wanted */
     private static final boolean ENABLE_APPRATER                = true;
 
@@ -81,61 +172,256 @@ public class AppRater
     /** Default count of positive events before the rating dialog should be shown. */
     private static final int     DEFAULT_EVENTS_BEFORE_RATE     = 2;
 
-    private Context              context;
+    /** Event type of the positive events without a type. */
+    private static final int     EVENT_TYPE_NONE                = Integer.MIN_VALUE;
+
+    /** The configuration snapshot shared by all app rater instances of this process. Loaded lazily. */
+    private static volatile AppRaterConfig sharedConfig;
+
+    /** The factory method of the generated configuration or null in case the app doesn't contain it. */
+    private static volatile Method generatedConfigFactory;
+    /** Flag if the generated configuration was looked up, so a missing class is only searched once. */
+    private static volatile boolean generatedConfigLookedUp;
+
+    /** The configuration with the default values, used as long as no context was set to read the meta data. */
+    private static final AppRaterConfig DEFAULT_CONFIG = new AppRaterConfig(DEFAULT_LAUNCH_BEFORE_RATE, DEFAULT_DAYS_BEFORE_RATE, DEFAULT_EVENTS_BEFORE_RATE, 
+                                                                            false, false, AppRaterConfig.STORAGE_PREFERENCES);
+
+    /** The store shared by all processes of the app in case it is configured. Loaded lazily. */
+    private static volatile AppRaterMultiProcessStore sharedMultiProcessStore;
+
+    /** The resolved dialog content shared by all app rater instances of this process. Loaded lazily. */
+    private static volatile AppRaterDialogContent sharedDialogContent;
+
+    /** The rating dialog that is about to be shown or currently showing, null if none. Ensures only one trigger of the process wins. */
+    private static final AtomicReference<DialogToken> pendingDialog = new AtomicReference<DialogToken>();
+
+    /** Weak reference to the current UI context. Only used to show the dialog, never kept by the store. */
+    private volatile WeakReference<Context> contextReference;
     /** The optional callback object to be noticed about the chosen dialog option. Past null if not interested. */
-    private AppRaterCallback     callbackHandler                = null;
-    private AppRaterPreferences  preferences;
+    private volatile AppRaterCallback    callbackHandler    = null;
+    /** The optional dispatcher of the dialog outcomes to a callback on an executor. */
+    private volatile AppRaterCallbackDispatcher callbackDispatcher;
+    /** The store of the rater state. The process wide preferences are used unless a store is given. */
+    private volatile AppRaterStore       store;
+    /** The decision logic for the current store and configuration. */
+    private volatile AppRaterDecider     decider;
+    /** The started asynchronous checks that are not done yet. Cancelled when the context gets invalidated. */
+    private final Set<AppRaterRequest>   pendingRequests    = new CopyOnWriteArraySet<AppRaterRequest>();
+    /** The rating dialog requested by this instance. Released when the context gets invalidated. */
+    private volatile DialogToken         dialogToken;
 
     public AppRater(Context context)
     {
         this.setContext(context);
     }
 
+    /**
+     * Create an app rater that uses the given store instead of the process wide preferences.
+     * 
+     * @param context
+     * @param store The store of the rater state, see {@link AppRaterStore} for the available implementations.
+     */
+    public AppRater(Context context, AppRaterStore store)
+    {
+        this.store = store;
+        this.setContext(context);
+    }
+
+    /**
+     * Set the context to use. The configuration and the store are shared by the whole process 
+     * and loaded lazily on the first check, so this only swaps the weak reference to the context.
+     * 
+     * @param context
+     */
     public void setContext(Context context)
     {
-        this.context = context;
-        this.preferences = new AppRaterPreferences(context, shouldLog());
+        this.contextReference = context == null ? null : new WeakReference<Context>(context);
     }
 
     public void invalidateContext()
     {
-        this.context = null;
-        this.preferences = null;
+        // Don't show a dialog of any pending check for the gone activity
+        for (AppRaterRequest request : pendingRequests)
+        {
+            request.cancel();
+        }
+        pendingRequests.clear();
+
+        // Release the dialog of the gone activity, its dismiss listener may never be called
+        DialogToken token = this.dialogToken;
+        if (token != null)
+        {
+            token.dismiss();
+            releaseDialog(token);
+        }
+
+        // Don't loose pending changes when the app is paused
+        if (this.store != null)
+        {
+            this.store.flushInBackground();
+        }
+
+        // The store doesn't reference the context and is kept for the next call of setContext
+        this.contextReference = null;
     }
 
+    /**
+     * Set the callback to be informed about the chosen dialog option. It is called on the UI thread 
+     * from within the click handler of the dialog, before the answer is stored.
+     * 
+     * @param callbackHandler The callback or null.
+     */
     public void setAppRaterCallback(AppRaterCallback callbackHandler)
     {
+        this.callbackDispatcher = null;
         this.callbackHandler = callbackHandler;
     }
 
+    /**
+     * Set the callback to be informed about the chosen dialog option on the given executor.
+     * The click handler of the dialog only stores the answer and launches the market, so a slow 
+     * callback, e.g. an analytics hook, doesn't delay the rating. Outcomes that are queued while
+     * a delivery is pending are delivered together.
+     * 
+     * @param callbackHandler The callback or null.
+     * @param executor The executor to call the callback on.
+     */
+    public void setAppRaterCallback(AppRaterCallback callbackHandler, Executor executor)
+    {
+        this.callbackHandler = null;
+        this.callbackDispatcher = callbackHandler == null ? null : AppRaterCallbackDispatcher.forCallback(executor, callbackHandler);
+    }
+
+    /**
+     * Set the callback to be informed about the chosen dialog options in batches on the given executor,
+     * see {@link #setAppRaterCallback(AppRaterCallback, Executor)}.
+     * 
+     * @param callbackHandler The callback or null.
+     * @param executor The executor to call the callback on.
+     */
+    public void setAppRaterBatchCallback(AppRaterBatchCallback callbackHandler, Executor executor)
+    {
+        this.callbackHandler = null;
+        this.callbackDispatcher = callbackHandler == null ? null : new AppRaterCallbackDispatcher(executor, callbackHandler);
+    }
+
     /**
      * Method to call from the onCreate method of the first activity that is shown.
+     * While the sessions are tracked (see {@link #trackSessions(Application)}) only the first call 
+     * of each session counts as launch, so it can be called from any activity and any lifecycle method.
      */
     public void checkToShowRatingOnStart()
     {
-        if (isReadyForUsage())
+        long startNanos = AppRaterMetrics.start();
+
+        if (!isRatingDeactivated() && isReadyForUsage())
         {
             if (shouldAppShowRatingOnStart() && ENABLE_APPRATER)
             {
-                showAppraterDialog();
+                requestAppraterDialog(null);
             }
         }
+
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_CHECK_ON_START, startNanos);
     }
 
     /**
      * Method to call from any point during the application when something positive
      * to the user happened.
+     * Can be called from any thread. The dialog is shown on the UI thread.
      * 
      */
     public void checkToShowRatingOnEvent()
     {
-        if (isReadyForUsage())
+        checkToShowRatingOnEvent(EVENT_TYPE_NONE);
+    }
+
+    /**
+     * Method to call from any point during the application when something positive
+     * of the given type happened, e.g. a completed level or a purchase.
+     * Each type is counted separately with its own threshold and weight, see {@link #META_CONFIG_EVENT_TYPES}.
+     * Can be called from any thread. The dialog is shown on the UI thread.
+     * 
+     * @param eventType The event type as defined by the app. Any int except Integer.MIN_VALUE.
+     */
+    public void checkToShowRatingOnEvent(int eventType)
+    {
+        recordEvents(eventType, 1);
+    }
+
+    /**
+     * Method to call when several positive events happened at once, e.g. after syncing completed tasks.
+     * The events are counted in a single update and the rating dialog is requested in case any of them
+     * reached the configured amount of events. Same as calling {@link #checkToShowRatingOnEvent()} for each
+     * event, but cheaper.
+     * Can be called from any thread. The dialog is shown on the UI thread.
+     * 
+     * @param count The amount of events.
+     */
+    public void recordEvents(int count)
+    {
+        recordEvents(EVENT_TYPE_NONE, count);
+    }
+
+    /**
+     * Method to call when several positive events of the given type happened at once.
+     * Same as calling {@link #checkToShowRatingOnEvent(int)} for each event, but cheaper.
+     * Can be called from any thread. The dialog is shown on the UI thread.
+     * 
+     * @param eventType The event type as defined by the app. Any int except Integer.MIN_VALUE.
+     * @param count The amount of events.
+     */
+    public void recordEvents(int eventType, int count)
+    {
+        long startNanos = AppRaterMetrics.start();
+
+        if (!isRatingDeactivated() && isReadyForUsage())
         {
-            if (shouldAppShowRatingOnEvent() && ENABLE_APPRATER)
+            if (shouldAppShowRatingOnEvent(eventType, count) && ENABLE_APPRATER)
             {
-                showAppraterDialog();
+                requestAppraterDialog(null);
             }
         }
+
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_CHECK_ON_EVENT, startNanos);
+    }
+
+    /**
+     * Asynchronous variant of {@link #checkToShowRatingOnStart()}. All checks and storage access are done
+     * on the given executor, only showing the dialog is done on the UI thread.
+     * 
+     * @param executor The executor to run the check on, e.g. AsyncTask.THREAD_POOL_EXECUTOR.
+     * @return Handle to cancel the check, e.g. when the activity goes away before it is done.
+     */
+    public AppRaterRequest checkToShowRatingOnStartAsync(Executor executor)
+    {
+        return checkToShowRatingAsync(executor, true, EVENT_TYPE_NONE);
+    }
+
+    /**
+     * Asynchronous variant of {@link #checkToShowRatingOnEvent()}. All checks and storage access are done
+     * on the given executor, only showing the dialog is done on the UI thread.
+     * 
+     * @param executor The executor to run the check on, e.g. AsyncTask.THREAD_POOL_EXECUTOR.
+     * @return Handle to cancel the check, e.g. when the activity goes away before it is done.
+     */
+    public AppRaterRequest checkToShowRatingOnEventAsync(Executor executor)
+    {
+        return checkToShowRatingAsync(executor, false, EVENT_TYPE_NONE);
+    }
+
+    /**
+     * Asynchronous variant of {@link #checkToShowRatingOnEvent(int)}. All checks and storage access are done
+     * on the given executor, only showing the dialog is done on the UI thread.
+     * 
+     * @param eventType The event type as defined by the app. Any int except Integer.MIN_VALUE.
+     * @param executor The executor to run the check on, e.g. AsyncTask.THREAD_POOL_EXECUTOR.
+     * @return Handle to cancel the check, e.g. when the activity goes away before it is done.
+     */
+    public AppRaterRequest checkToShowRatingOnEventAsync(int eventType, Executor executor)
+    {
+        return checkToShowRatingAsync(executor, false, eventType);
     }
 
     /**
@@ -146,7 +432,7 @@ public class AppRater
     {
         if (isReadyForUsage())
         {
-            preferences.reset();
+            getStore().reset();
         }
     }
 
@@ -158,13 +444,25 @@ public class AppRater
     {
         if (isReadyForUsage())
         {
-            if (!preferences.isRatingRequestDeclined())
+            if (!getStore().isRatingRequestDeclined())
             {
                 resetAllStoredPreferences();
             }
         }
     }
 
+    /**
+     * Write all pending changes of the write-behind mode.
+     * Blocks till all changes are stored, so better not call this from the UI thread.
+     */
+    public void flush()
+    {
+        if (isReadyForUsage())
+        {
+            getStore().flush();
+        }
+    }
+
     /**
      * Get the configured amount of app launches before the rating dialog should be shown.
      * 
@@ -172,11 +470,11 @@ public class AppRater
      */
     public int getConfigLaunchBeforeRateCount()
     {
-        int launchBeforeRate = getConfigurationIntOrDefaultValue(META_CONFIG_LAUNCH_BEFORE_RATE, DEFAULT_LAUNCH_BEFORE_RATE);
+        int launchBeforeRate = getCurrentConfig().getLaunchBeforeRate();
 
-        if (shouldLog())
+        if (AppRaterLog.isEnabled())
         {            
-            Log.i(AppRater.LOG_TAG, "Devmob AppRater configured to wait for " + launchBeforeRate + " launches.");
+            AppRaterLog.log(AppRaterLog.INFO, "Devmob AppRater configured to wait for {} launches.", launchBeforeRate);
         }
 
         return launchBeforeRate;
@@ -189,11 +487,11 @@ public class AppRater
      */
     public int getConfigDaysBeforeRateCount()
     {
-        int daysBeforeRate = getConfigurationIntOrDefaultValue(META_CONFIG_DAYS_BEFORE_RATE, DEFAULT_DAYS_BEFORE_RATE);
+        int daysBeforeRate = getCurrentConfig().getDaysBeforeRate();
 
-        if (shouldLog())
+        if (AppRaterLog.isEnabled())
         {            
-            Log.i(AppRater.LOG_TAG, "Devmob AppRater configured to wait for " + daysBeforeRate + " days.");
+            AppRaterLog.log(AppRaterLog.INFO, "Devmob AppRater configured to wait for {} days.", daysBeforeRate);
         }
 
         return daysBeforeRate;
@@ -206,252 +504,1118 @@ public class AppRater
      */
     public int getConfigEventsBeforeRateCount()
     {
-        int daysBeforeRate = getConfigurationIntOrDefaultValue(META_CONFIG_EVENTS_BEFORE_RATE, DEFAULT_EVENTS_BEFORE_RATE);
+        int daysBeforeRate = getCurrentConfig().getEventsBeforeRate();
 
-        if (shouldLog())
+        if (AppRaterLog.isEnabled())
         {            
-            Log.i(AppRater.LOG_TAG, "Devmob AppRater configured to wait for " + daysBeforeRate + " positive events.");
+            AppRaterLog.log(AppRaterLog.INFO, "Devmob AppRater configured to wait for {} positive events.", daysBeforeRate);
         }
 
         return daysBeforeRate;
     }
 
-    private boolean isReadyForUsage()
+    /**
+     * Track the sessions of the app via the activity lifecycle callbacks, so a launch is only counted
+     * after the app was in the background for longer than {@link #META_CONFIG_SESSION_TIMEOUT}.
+     * The callbacks only start a new session, the launch is still counted by {@link #checkToShowRatingOnStart()},
+     * once per session. Without tracking each call of {@link #checkToShowRatingOnStart()} counts as launch, 
+     * including the recreation of the activity on a configuration change like a rotation.
+     * The configured timeout is used once the configuration was loaded by the first check or {@link #prefetch(Context)}.
+     * Call this from Application.onCreate(). Requires API level 14, has no effect on older platforms.
+     * 
+     * @param application
+     */
+    public static void trackSessions(Application application)
     {
-        return this.context != null && this.preferences != null;
+        if (Build.VERSION.SDK_INT >= 14)
+        {
+            AppRaterLifecycleCallbacks.register(application);
+        }
     }
 
     /**
-     * Util method to get a configured int value from the application bundle information defined by the 
-     * given key. In case the entry doesn't exist or anyhting goes wrong, the defaultValue is returned.
+     * Load everything the app rater needs on a background thread: the configuration, the stored state
+     * and the app information shown in the dialog. Call this as early as possible, e.g. in Application.onCreate(),
+     * so the first check of an activity doesn't have to wait for the storage and the package manager.
+     * Loading is done only once per process, so calling this more than once is cheap.
      * 
-     * @param configKey
-     * @param defaultValue
-     * @return
+     * @param context Any context of the application.
      */
-    private int getConfigurationIntOrDefaultValue(String configKey, int defaultValue)
+    public static void prefetch(Context context)
     {
-        int returnValue = defaultValue;
-
-        try
+        prefetch(context, new Executor()
         {
-            ApplicationInfo ai = context.getPackageManager().getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
-            Bundle aBundle = ai.metaData;
-            returnValue = aBundle.getInt(configKey);
-            // Check if available
-            if (returnValue == 0)
-            {                
-                returnValue = defaultValue;
+            public void execute(Runnable command)
+            {
+                Thread thread = new Thread(command, "AppRater-Prefetch");
+                thread.setDaemon(true);
+                thread.start();
             }
-        }
-        catch (Exception e)
-        {
-            // Ignore and reset to default
-            returnValue = defaultValue;
-        }
-
-        return returnValue;
+        });
     }
 
     /**
-     * Check if the app rating should be shown.
-     * Checks the status of the app launches and the previous app rating usage.
+     * Load everything the app rater needs on the given executor, see {@link #prefetch(Context)}.
      * 
-     * @return Flag if the dialog should be shown.
+     * @param context Any context of the application.
+     * @param executor The executor to load on, must not run on the UI thread.
      */
-    private boolean shouldAppShowRatingOnStart()
+    public static void prefetch(Context context, Executor executor)
     {
-        // Increase count (except when rating was declined before)
-        if (!preferences.isRatingRequestDeclined())
+        Context applicationContext = context.getApplicationContext();
+        final Context prefetchContext = applicationContext != null ? applicationContext : context;
+
+        executor.execute(new Runnable()
         {
-            preferences.increaseCountOpened();
-        }
+            public void run()
+            {
+                getConfig(prefetchContext);
+                getSharedStore(prefetchContext);
+                getDialogContent(prefetchContext);
+            }
+        });
+    }
 
-        // No rating case it was already dismissed or rated.
-        if (preferences.isRatingRequestDeactivated())
+    /**
+     * Get the configuration snapshot of this process. The meta data of the application is only read
+     * on the first call, all further calls return the cached snapshot without any package manager lookup.
+     * 
+     * @param context
+     * @return The shared configuration.
+     */
+    public static AppRaterConfig getConfig(Context context)
+    {
+        AppRaterConfig config = sharedConfig;
+        if (config == null)
         {
-            Log.i(AppRater.LOG_TAG, "AppRater configured to never request rating via dialog (reset after re-install of the app). Checked on start.");
-            return false;
+            synchronized (AppRater.class)
+            {
+                config = sharedConfig;
+                if (config == null)
+                {
+                    config = loadConfig(context);
+                    sharedConfig = config;
+                    AppRaterLogcat.setEnabled(config.isVerbose());
+                }
+            }
         }
 
-        // Check if enough days gone by
-        long currentTime = System.currentTimeMillis();
-        long storedTime = preferences.getStoredStartDate();
-        long daysPastSinceStart= ((currentTime - storedTime) / (1000 * 60 * 60 * 24));
-
-        if (shouldLog())
-        {            
-            Log.i(AppRater.LOG_TAG, "AppRater comparison " + daysPastSinceStart + " past ? >= " + getConfigDaysBeforeRateCount());
-        }
+        return config;
+    }
 
-        if (daysPastSinceStart < getConfigDaysBeforeRateCount())
-        {
-            return false;
-        }
+    /**
+     * Get the shared configuration snapshot without loading it.
+     * 
+     * @return The configuration or null in case it wasn't loaded so far.
+     */
+    static AppRaterConfig getLoadedConfig()
+    {
+        return sharedConfig;
+    }
 
-        // Check the usage
-        int countOpened = preferences.getCountOpened();
-        if (countOpened % getConfigLaunchBeforeRateCount() == 0)
+    /**
+     * Read the meta data of the application again and replace the shared configuration snapshot.
+     * Only needed in case the configuration can change while the process is running.
+     * 
+     * @param context
+     * @return The newly loaded configuration.
+     */
+    public static AppRaterConfig reloadConfig(Context context)
+    {
+        synchronized (AppRater.class)
         {
-            return true;
+            AppRaterConfig config = loadConfig(context);
+            sharedConfig = config;
+            AppRaterLogcat.setEnabled(config.isVerbose());
+            return config;
         }
-
-        // Fallback is not to show the dialog
-        return false;
     }
 
     /**
-     * Check if the app rating should be shown.
-     * Checks the status of the app events and the previous app rating usage.
+     * Get the store shared by all app rater instances of this process: the preferences or, 
+     * in case it is configured, the store shared by all processes of the app.
      * 
-     * @return Flag if the dialog should be shown.
+     * @param context
+     * @return The shared store.
      */
-    private boolean shouldAppShowRatingOnEvent()
+    static AppRaterStore getSharedStore(Context context)
     {
-        // Increase count (except when rating was declined before)
-        if (!preferences.isRatingRequestDeclined())
+        if (getConfig(context).getStorage() != AppRaterConfig.STORAGE_MULTI_PROCESS)
         {
-            preferences.increaseCountEvents();
+            return AppRaterPreferences.getInstance(context);
         }
-        
-        // No rating case it was already dismissed or rated.
-        if (preferences.isRatingRequestDeactivated())
+
+        AppRaterMultiProcessStore store = sharedMultiProcessStore;
+        if (store == null)
         {
-            Log.i(AppRater.LOG_TAG, "AppRater configured to never request rating via dialog (reset after re-install of the app). Checked on event.");
-            return false;
+            synchronized (AppRater.class)
+            {
+                store = sharedMultiProcessStore;
+                if (store == null)
+                {
+                    Context applicationContext = context.getApplicationContext();
+                    if (applicationContext == null)
+                    {
+                        applicationContext = context;
+                    }
+
+                    File file = new File(applicationContext.getFilesDir(), MULTI_PROCESS_FILE_NAME);
+                    store = new AppRaterMultiProcessStore(file);
+                    // Take over the values of the binary file or else of the preferences once, decided under the file lock.
+                    // The preferences instance only reads the preferences in this storage mode.
+                    if (!store.hasStoredState() && !store.importState(AppRaterPreferences.getStateFile(applicationContext)) 
+                            && !store.hasStoredState())
+                    {
+                        AppRaterPreferences preferences = AppRaterPreferences.getInstance(context);
+                        if (store.importState(preferences))
+                        {
+                            preferences.clearStorage();
+                        }
+                    }
+                    sharedMultiProcessStore = store;
+                }
+            }
         }
+        return store;
+    }
 
-        // Check the usage
-        int countEvents = preferences.getCountEvents();
-        if (countEvents % getConfigEventsBeforeRateCount() == 0)
+    /**
+     * Get the dialog content of this process. Resolved via the package manager and the resources 
+     * on the first call and again only after the locale changed.
+     * 
+     * @param context
+     * @return The shared dialog content or null in case it can't be resolved.
+     */
+    static AppRaterDialogContent getDialogContent(Context context)
+    {
+        AppRaterDialogContent content = sharedDialogContent;
+        if (content == null || !content.isValidFor(context))
         {
-            return true;
+            content = AppRaterDialogContent.load(context);
+            sharedDialogContent = content;
         }
 
-        // Fallback is not to show the dialog
-        return false;
+        return content;
     }
 
     /**
-     * Create and show the app rating dialog. This fetches the package name from the context
-     * and uses the texts as given in the locale resources.  
+     * Check if the user already rated or declined to rate, without loading anything.
+     * Once the state is loaded, this is answered from memory by the store shared by the process.
+     * 
+     * @return Flag if no rating dialog will be shown anymore. False in case the state is not loaded yet.
      */
-    private void showAppraterDialog()
+    private boolean isRatingDeactivated()
     {
-        AlertDialog.Builder builderInvite = new AlertDialog.Builder(context);
-
-        String packageName = "";
-        String appName = "";
-        try
+        AppRaterStore store = this.store;
+        if (store == null)
         {
-            // Get the package info manager from the given context
-            PackageManager manager = context.getPackageManager();
-            PackageInfo info = manager.getPackageInfo(context.getPackageName(), 0);
-
-            // Dynamically read the package name and the application name
-            packageName = info.packageName;
-            appName = context.getResources().getString(info.applicationInfo.labelRes);
+            store = sharedMultiProcessStore;
         }
-        catch (Exception e)
+        if (store == null)
         {
-            // When failing to get the needed information, we ignore the wish to show a rater dialog
-            return;
+            store = AppRaterPreferences.peekInstance();
         }
+        return store != null && store.isRatingRequestDeactivated();
+    }
 
-        Log.d("Appirater", "PackageName: " + packageName);
+    private boolean isReadyForUsage()
+    {
+        return getContext() != null;
+    }
 
-        
-        // TODO (fwild): Add other kinds of links when different stores are supported
-        
-        // Create the link to the google play store detail page
-        final String marketLink = "market://details?id=" + packageName;
+    /**
+     * Get the current context.
+     * 
+     * @return The context or null in case it got invalidated or collected.
+     */
+    private Context getContext()
+    {
+        WeakReference<Context> contextReference = this.contextReference;
+        return contextReference == null ? null : contextReference.get();
+    }
 
-        if (shouldLog())
-        {            
-            Log.i(AppRater.LOG_TAG, "Url to link for rating: " + marketLink);
+    /**
+     * Start the check on the given executor and remember the request to be able to cancel it.
+     * 
+     * @param executor
+     * @param onStart Flag if the start or the event check is wanted.
+     * @param eventType The type of the event or EVENT_TYPE_NONE.
+     * @return Handle of the request.
+     */
+    private AppRaterRequest checkToShowRatingAsync(Executor executor, final boolean onStart, final int eventType)
+    {
+        if (isRatingDeactivated())
+        {
+            return AppRaterRequest.DONE;
         }
 
-        String title = context.getString(R.string.dialog_rate_title, appName);
-        builderInvite.setTitle(title);
+        final AppRaterRequest request = new AppRaterRequest();
 
-        String message = context.getString(R.string.dialog_rate_message, appName);
-        builderInvite.setMessage(message);
-        
-        String buttonOK = context.getString(R.string.rating_dialog_button_ok);
-        String buttonLater = context.getString(R.string.rating_dialog_button_later);
-        String buttonNever = context.getString(R.string.rating_dialog_button_never);
-        
-        builderInvite.setPositiveButton(buttonOK, new DialogInterface.OnClickListener()
+        // Forget the requests that are done in the meantime, so only the outstanding ones are kept
+        for (AppRaterRequest pending : pendingRequests)
         {
-            public void onClick(DialogInterface dialog, int id)
+            if (pending.isDone())
             {
-                if (callbackHandler != null)
-                {
-                    callbackHandler.processRate();
-                }
-
-                // Mark as never ask for rating again (cause now it was done)
-                preferences.storeRated();
-                
-                // Trigger the rating intent
-                Uri uri = Uri.parse(marketLink);
-                Intent intent = new Intent(Intent.ACTION_VIEW, uri);
-                context.startActivity(intent);
-                dialog.dismiss();
+                pendingRequests.remove(pending);
             }
-        }).setNeutralButton(buttonLater, new OnClickListener()
+        }
+        pendingRequests.add(request);
+
+        executor.execute(new Runnable()
         {
-            public void onClick(DialogInterface dialog, int which)
+            public void run()
             {
-                if (callbackHandler != null)
+                long startNanos = AppRaterMetrics.start();
+                boolean showDialog = false;
+
+                if (!request.isCancelled() && isReadyForUsage())
                 {
-                    callbackHandler.processRemindMe();
+                    showDialog = onStart ? shouldAppShowRatingOnStart() : shouldAppShowRatingOnEvent(eventType, 1);
                 }
-                
-                // Mark as to ask later again
-                preferences.storeToRateLater();
 
-                dialog.dismiss();
-            }
-        }).setNegativeButton(buttonNever, new OnClickListener()
+                AppRaterMetrics.stop(onStart ? AppRaterMetrics.TIMER_CHECK_ON_START : AppRaterMetrics.TIMER_CHECK_ON_EVENT, startNanos);
+
+                if (showDialog && ENABLE_APPRATER && !request.isCancelled())
+                {
+                    // Resolve the dialog content while still off the UI thread
+                    Context context = getContext();
+                    if (context != null)
+                    {
+                        getDialogContent(context);
+                    }
+
+                    requestAppraterDialog(request);
+                }
+                else
+                {
+                    request.setDone();
+                }
+            }
+        });
+
+        return request;
+    }
+
+    /**
+     * Get the configuration of this instance. Loads the shared configuration on first usage.
+     * Falls back to the default configuration in case no context was set so far, without reading anything.
+     * 
+     * @return The configuration to use.
+     */
+    private AppRaterConfig getCurrentConfig()
+    {
+        AppRaterConfig config = sharedConfig;
+        if (config == null)
+        {
+            Context context = getContext();
+            if (context == null)
+            {
+                return DEFAULT_CONFIG;
+            }
+            config = getConfig(context);
+        }
+        return config;
+    }
+
+    /**
+     * Get the decider for the current store and configuration.
+     * 
+     * @return The decider or null in case no context is set.
+     */
+    private AppRaterDecider getDecider()
+    {
+        AppRaterStore store = getStore();
+        if (store == null)
+        {
+            return null;
+        }
+
+        AppRaterConfig config = getCurrentConfig();
+        AppRaterDecider decider = this.decider;
+        if (decider == null || decider.getStore() != store || decider.getConfig() != config)
+        {
+            decider = new AppRaterDecider(store, config);
+            this.decider = decider;
+        }
+        return decider;
+    }
+
+    /**
+     * Get the store of this instance. Loads the process wide preferences on first usage
+     * in case no store was given.
+     * 
+     * @return The store or null in case no context is set.
+     */
+    private AppRaterStore getStore()
+    {
+        AppRaterStore store = this.store;
+        if (store == null)
+        {
+            Context context = getContext();
+            if (context != null)
+            {
+                store = getSharedStore(context);
+                this.store = store;
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Read all configuration values from the application bundle information with a single package manager lookup.
+     * In case an entry doesn't exist or anything goes wrong, the default values are used.
+     * In case the app contains the configuration generated at build time, it is used instead.
+     * 
+     * @param context
+     * @return The parsed configuration.
+     */
+    private static AppRaterConfig loadConfig(Context context)
+    {
+        long startNanos = AppRaterMetrics.start();
+
+        AppRaterConfig config = loadGeneratedConfig();
+        if (config == null)
+        {
+            config = loadMetaDataConfig(context);
+        }
+
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_CONFIG_LOOKUP, startNanos);
+        return config;
+    }
+
+    /**
+     * Get the configuration generated at build time (see {@link #GENERATED_CONFIG_CLASS}).
+     * The class is only looked up once per process, including the result that it is missing.
+     * 
+     * @return The generated configuration or null in case the app doesn't contain it.
+     */
+    private static AppRaterConfig loadGeneratedConfig()
+    {
+        if (!generatedConfigLookedUp)
+        {
+            try
+            {
+                generatedConfigFactory = Class.forName(GENERATED_CONFIG_CLASS).getMethod("create");
+            }
+            catch (ClassNotFoundException e)
+            {
+                // Not generated, read the meta data
+            }
+            catch (Exception e)
+            {
+                if (AppRaterLog.isEnabled())
+                {
+                    AppRaterLog.log(AppRaterLog.WARN, "Ignoring the generated configuration: {}", e.toString());
+                }
+            }
+            generatedConfigLookedUp = true;
+        }
+
+        Method factory = generatedConfigFactory;
+        if (factory == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return (AppRaterConfig) factory.invoke(null);
+        }
+        catch (Exception e)
+        {
+            if (AppRaterLog.isEnabled())
+            {
+                AppRaterLog.log(AppRaterLog.WARN, "Ignoring the generated configuration: {}", e.toString());
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Read all configuration values from the application bundle information.
+     * 
+     * @param context
+     * @return The parsed configuration.
+     */
+    private static AppRaterConfig loadMetaDataConfig(Context context)
+    {
+        Bundle aBundle = null;
+
+        try
+        {
+            ApplicationInfo ai = context.getPackageManager().getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
+            aBundle = ai.metaData;
+        }
+        catch (Exception e)
+        {
+            // Ignore and use the defaults
+            aBundle = null;
+        }
+
+        int launchBeforeRate = getConfigurationIntOrDefaultValue(aBundle, META_CONFIG_LAUNCH_BEFORE_RATE, DEFAULT_LAUNCH_BEFORE_RATE);
+        int daysBeforeRate = getConfigurationIntOrDefaultValue(aBundle, META_CONFIG_DAYS_BEFORE_RATE, DEFAULT_DAYS_BEFORE_RATE);
+        int eventsBeforeRate = getConfigurationIntOrDefaultValue(aBundle, META_CONFIG_EVENTS_BEFORE_RATE, DEFAULT_EVENTS_BEFORE_RATE);
+        boolean verbose = aBundle != null && aBundle.getBoolean(META_CONFIG_VERBOSE);
+        boolean writeBehind = aBundle != null && aBundle.getBoolean(META_CONFIG_WRITE_BEHIND);
+        int sessionTimeout = getConfigurationIntOrDefaultValue(aBundle, META_CONFIG_SESSION_TIMEOUT, AppRaterConfig.DEFAULT_SESSION_TIMEOUT);
+
+        if (aBundle == null)
+        {
+            return createConfig(launchBeforeRate, daysBeforeRate, eventsBeforeRate, verbose, writeBehind, null, null, null, null, null, sessionTimeout, null);
+        }
+
+        return createConfig(launchBeforeRate, daysBeforeRate, eventsBeforeRate, verbose, writeBehind, 
+                            aBundle.getString(META_CONFIG_STORAGE), aBundle.getString(META_CONFIG_MARKETS), aBundle.getString(META_CONFIG_MARKET_URL), 
+                            aBundle.getString(META_CONFIG_EVENT_TYPES), aBundle.getString(META_CONFIG_ENGAGEMENT), sessionTimeout, 
+                            getConfigurationRuleSource(context, aBundle));
+    }
+
+    /**
+     * Create the configuration of the given values as they are written in the meta data. 
+     * Broken entries are ignored, null values use the defaults.
+     * 
+     * @param launchBeforeRate
+     * @param daysBeforeRate
+     * @param eventsBeforeRate
+     * @param verbose
+     * @param writeBehind
+     * @param storage
+     * @param markets
+     * @param customMarketUrl
+     * @param eventTypes
+     * @param engagement
+     * @param sessionTimeout
+     * @param rule
+     * @return The configuration.
+     */
+    private static AppRaterConfig createConfig(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate, boolean verbose, boolean writeBehind, 
+                                       String storage, String markets, String customMarketUrl, String eventTypes, String engagement, 
+                                       int sessionTimeout, String rule)
+    {
+        AppRaterConfig config = new AppRaterConfig(launchBeforeRate, daysBeforeRate, eventsBeforeRate, verbose, writeBehind, 
+                                                   getConfigurationStorage(storage), getConfigurationMarkets(markets), customMarketUrl);
+        config = getConfigurationEventTypes(eventTypes, config);
+        config = getConfigurationEngagement(engagement, config);
+        config = config.withSessionTimeout(Math.max(sessionTimeout, 0));
+        config = getConfigurationRule(rule, config);
+        return config;
+    }
+
+    /**
+     * Util method to get a configured int value from the application bundle information defined by the 
+     * given key. In case the entry doesn't exist, isn't positive or anyhting goes wrong, the defaultValue is returned.
+     * 
+     * @param aBundle
+     * @param configKey
+     * @param defaultValue
+     * @return
+     */
+    private static int getConfigurationIntOrDefaultValue(Bundle aBundle, String configKey, int defaultValue)
+    {
+        int returnValue = defaultValue;
+
+        try
+        {
+            returnValue = aBundle.getInt(configKey);
+            // Check if available and valid
+            if (returnValue <= 0)
+            {                
+                returnValue = defaultValue;
+            }
+        }
+        catch (Exception e)
+        {
+            // Ignore and reset to default
+            returnValue = defaultValue;
+        }
+
+        return returnValue;
+    }
+
+    /**
+     * Util method to get the configured storage. 
+     * In case the entry doesn't exist or is unknown, the shared preferences are used.
+     * 
+     * @param storage The configured name of the storage or null.
+     * @return One of the AppRaterConfig.STORAGE_* constants.
+     */
+    private static int getConfigurationStorage(String storage)
+    {
+        if ("binary".equals(storage))
+        {
+            return AppRaterConfig.STORAGE_BINARY;
+        }
+        else if ("mapped".equals(storage))
+        {
+            return AppRaterConfig.STORAGE_MAPPED;
+        }
+        else if ("multiprocess".equals(storage))
+        {
+            return AppRaterConfig.STORAGE_MULTI_PROCESS;
+        }
+
+        return AppRaterConfig.STORAGE_PREFERENCES;
+    }
+
+    /**
+     * Util method to get the configured markets.
+     * Unknown names are ignored.
+     * 
+     * @param value The configured comma separated names of the markets or null.
+     * @return The AppRaterConfig.MARKET_* constants in the configured order or null for the default markets.
+     */
+    private static int[] getConfigurationMarkets(String value)
+    {
+        if (value == null)
+        {
+            return null;
+        }
+
+        String[] names = value.split(",");
+        int[] markets = new int[names.length];
+        int count = 0;
+        for (String name : names)
+        {
+            int market = AppRaterMarket.getMarket(name.trim());
+            if (market >= 0)
+            {
+                markets[count++] = market;
+            }
+        }
+
+        int[] result = new int[count];
+        System.arraycopy(markets, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Util method to add the configured event types to the configuration.
+     * Broken entries are ignored.
+     * 
+     * @param value The configured event types or null.
+     * @param config
+     * @return The configuration with the event types.
+     */
+    private static AppRaterConfig getConfigurationEventTypes(String value, AppRaterConfig config)
+    {
+        if (value == null)
+        {
+            return config;
+        }
+
+        for (String entry : value.split(","))
+        {
+            String[] parts = entry.trim().split(":");
+            try
+            {
+                int eventType = Integer.parseInt(parts[0].trim());
+                int threshold = Integer.parseInt(parts[1].trim());
+                int weight = parts.length > 2 ? Integer.parseInt(parts[2].trim()) : 1;
+                config = config.withEventType(eventType, threshold, weight);
+            }
+            catch (RuntimeException e)
+            {
+                // Ignore the broken entry
+            }
+        }
+
+        return config;
+    }
+
+    /**
+     * Util method to add the configured engagement conditions to the configuration.
+     * Broken entries are ignored.
+     * 
+     * @param value The configured engagement conditions or null.
+     * @param config
+     * @return The configuration with the engagement conditions.
+     */
+    private static AppRaterConfig getConfigurationEngagement(String value, AppRaterConfig config)
+    {
+        if (value == null)
+        {
+            return config;
+        }
+
+        for (String entry : value.split(","))
+        {
+            String[] parts = entry.trim().split(":");
+            try
+            {
+                int counter;
+                if ("launches".equals(parts[0].trim()))
+                {
+                    counter = AppRaterConfig.ENGAGEMENT_LAUNCHES;
+                }
+                else if ("events".equals(parts[0].trim()))
+                {
+                    counter = AppRaterConfig.ENGAGEMENT_EVENTS;
+                }
+                else
+                {
+                    continue;
+                }
+
+                int minCount = Integer.parseInt(parts[1].trim());
+                String window = parts[2].trim();
+                int hours;
+                if (window.endsWith("d"))
+                {
+                    hours = Integer.parseInt(window.substring(0, window.length() - 1)) * 24;
+                }
+                else if (window.endsWith("h"))
+                {
+                    hours = Integer.parseInt(window.substring(0, window.length() - 1));
+                }
+                else
+                {
+                    hours = Integer.parseInt(window);
+                }
+                config = config.withEngagement(counter, minCount, hours);
+            }
+            catch (RuntimeException e)
+            {
+                // Ignore the broken entry
+            }
+        }
+
+        return config;
+    }
+
+    /**
+     * Util method to get the configured rule of the application bundle information.
+     * The rule is given as value or as reference to a string resource.
+     * 
+     * @param context
+     * @param aBundle
+     * @return The source of the rule or null.
+     */
+    private static String getConfigurationRuleSource(Context context, Bundle aBundle)
+    {
+        Object value = aBundle.get(META_CONFIG_RULE);
+        if (value instanceof Integer)
+        {
+            try
+            {
+                return context.getString(((Integer) value).intValue());
+            }
+            catch (RuntimeException e)
+            {
+                // Ignore the missing resource
+                return null;
+            }
+        }
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Util method to add the configured rule to the configuration. A broken rule is ignored.
+     * 
+     * @param rule The source of the rule or null.
+     * @param config
+     * @return The configuration with the rule.
+     */
+    private static AppRaterConfig getConfigurationRule(String rule, AppRaterConfig config)
+    {
+        if (rule == null)
+        {
+            return config;
+        }
+
+        try
+        {
+            return config.withRule(AppRaterRule.compile(rule));
+        }
+        catch (RuntimeException e)
+        {
+            if (AppRaterLog.isEnabled())
+            {
+                AppRaterLog.log(AppRaterLog.WARN, "Ignoring the rating rule: {}", e.getMessage());
+            }
+            return config;
+        }
+    }
+
+    /**
+     * Check if the app rating should be shown.
+     * Checks the status of the app launches and the previous app rating usage.
+     * 
+     * @return Flag if the dialog should be shown.
+     */
+    private boolean shouldAppShowRatingOnStart()
+    {
+        AppRaterDecider decider = getDecider();
+        if (decider == null)
+        {
+            // Context got invalidated in the meantime
+            return false;
+        }
+
+        if (!AppRaterSession.claimLaunch())
+        {
+            // Already counted in this session, e.g. the activity got recreated on a rotation
+            if (AppRaterLog.isEnabled())
+            {
+                AppRaterLog.log(AppRaterLog.DEBUG, "AppRater launch of the current session already counted.");
+            }
+            return false;
+        }
+
+        long currentTime = System.currentTimeMillis();
+        boolean showRating = decider.shouldShowRatingOnStart(currentTime);
+
+        if (AppRaterLog.isEnabled())
+        {
+            logDecision(decider, currentTime, true);
+        }
+
+        return showRating;
+    }
+
+    /**
+     * Check if the app rating should be shown.
+     * Checks the status of the app events and the previous app rating usage.
+     * 
+     * @param eventType The type of the event or EVENT_TYPE_NONE.
+     * @param count The amount of events.
+     * @return Flag if the dialog should be shown.
+     */
+    private boolean shouldAppShowRatingOnEvent(int eventType, int count)
+    {
+        AppRaterDecider decider = getDecider();
+        if (decider == null)
+        {
+            // Context got invalidated in the meantime
+            return false;
+        }
+
+        boolean showRating;
+        if (eventType != EVENT_TYPE_NONE)
+        {
+            showRating = decider.shouldShowRatingOnEvents(eventType, count);
+        }
+        else if (count == 1)
+        {
+            showRating = decider.shouldShowRatingOnEvent();
+        }
+        else
+        {
+            showRating = decider.shouldShowRatingOnEvents(count);
+        }
+
+        if (AppRaterLog.isEnabled())
+        {
+            logDecision(decider, System.currentTimeMillis(), false);
+        }
+
+        return showRating;
+    }
+
+    /**
+     * Log the values the last decision was based on.
+     * 
+     * @param decider
+     * @param currentTime
+     * @param onStart Flag if the start or the event was checked. Only the start compares the days.
+     */
+    private void logDecision(AppRaterDecider decider, long currentTime, boolean onStart)
+    {
+        if (decider.getStore().isRatingRequestDeactivated())
+        {
+            AppRaterLog.log(AppRaterLog.INFO, "AppRater configured to never request rating via dialog (reset after re-install of the app). Checked on {}.", onStart ? "start" : "event");
+        }
+        else if (onStart)
+        {
+            AppRaterLog.log(AppRaterLog.INFO, "AppRater comparison {} past ? >= {}", decider.getDaysPastSinceStart(currentTime), decider.getConfig().getDaysBeforeRate());
+        }
+    }
+
+    /**
+     * Show the app rating dialog on the UI thread, unless another dialog is already pending.
+     * Of concurrent triggers only the first one wins.
+     * 
+     * @param request The asynchronous request that triggered the dialog or null.
+     */
+    private void requestAppraterDialog(final AppRaterRequest request)
+    {
+        final DialogToken token = new DialogToken();
+        if (!acquireDialog(token))
+        {
+            if (request != null)
+            {
+                request.setDone();
+            }
+            return;
+        }
+        this.dialogToken = token;
+
+        if (Looper.myLooper() == Looper.getMainLooper())
+        {
+            showAppraterDialog(request, token);
+        }
+        else
+        {
+            new Handler(Looper.getMainLooper()).post(new Runnable()
+            {
+                public void run()
+                {
+                    showAppraterDialog(request, token);
+                }
+            });
+        }
+    }
+
+    /**
+     * Try to become the one rating dialog of the process. A dialog that is gone without being dismissed, 
+     * e.g. as its activity was destroyed, doesn't block further dialogs.
+     * 
+     * @param token The token of the new dialog.
+     * @return Flag if the dialog may be shown.
+     */
+    private static boolean acquireDialog(DialogToken token)
+    {
+        DialogToken current = pendingDialog.get();
+        if (current != null && !current.isGone())
+        {
+            return false;
+        }
+        return pendingDialog.compareAndSet(current, token);
+    }
+
+    /**
+     * Release the given dialog, so the next trigger can show a dialog again.
+     * Does nothing in case the dialog was already released.
+     * 
+     * @param token
+     */
+    private void releaseDialog(DialogToken token)
+    {
+        pendingDialog.compareAndSet(token, null);
+        if (this.dialogToken == token)
+        {
+            this.dialogToken = null;
+        }
+    }
+
+    /**
+     * Create and show the app rating dialog with the content as resolved once per process,
+     * see {@link #getDialogContent(Context)}.
+     * Releases the dialog token, once the dialog is gone or couldn't be shown.
+     * 
+     * @param request The asynchronous request that triggered the dialog or null.
+     * @param token The token of the dialog.
+     */
+    private void showAppraterDialog(AppRaterRequest request, final DialogToken token)
+    {
+        long startNanos = AppRaterMetrics.start();
+        final Context context = getContext();
+        final AppRaterStore store = this.store;
+        final AppRaterCallback callbackHandler = this.callbackHandler;
+        final AppRaterCallbackDispatcher callbackDispatcher = this.callbackDispatcher;
+
+        if (request != null)
+        {
+            request.setDone();
+        }
+
+        if (context == null || store == null || (request != null && request.isCancelled()) || pendingDialog.get() != token)
+        {
+            // Context got invalidated, the request cancelled or the dialog released in the meantime
+            releaseDialog(token);
+            return;
+        }
+
+        AlertDialog.Builder builderInvite = new AlertDialog.Builder(context);
+
+        // Resolved once per process, usually already prefetched
+        AppRaterDialogContent content = getDialogContent(context);
+        if (content == null)
+        {
+            // When failing to get the needed information, we ignore the wish to show a rater dialog
+            releaseDialog(token);
+            return;
+        }
+
+        if (AppRaterLog.isEnabled())
+        {
+            AppRaterLog.log(AppRaterLog.DEBUG, "PackageName: {}", content.getPackageName());
+        }
+
+        final AppRaterMarket market = content.getMarket();
+        if (market == null)
+        {
+            // There is no market on the device to rate in
+            if (AppRaterLog.isEnabled())
+            {
+                AppRaterLog.log(AppRaterLog.WARN, "None of the configured markets is available.");
+            }
+            releaseDialog(token);
+            return;
+        }
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Url to link for rating in {}: {}", market.getName(), market.getLink());
+        }
+
+        builderInvite.setTitle(content.getTitle());
+        builderInvite.setMessage(content.getMessage());
+        
+        builderInvite.setPositiveButton(content.getButtonOK(), new DialogInterface.OnClickListener()
+        {
+            public void onClick(DialogInterface dialog, int id)
+            {
+                AppRaterMetrics.increment(AppRaterMetrics.COUNTER_RATE);
+
+                if (callbackHandler != null)
+                {
+                    callbackHandler.processRate();
+                }
+
+                // Mark as never ask for rating again (cause now it was done)
+                store.storeRated();
+                
+                // Trigger the rating intent
+                try
+                {
+                    context.startActivity(market.createIntent());
+                }
+                catch (ActivityNotFoundException e)
+                {
+                    // The market got uninstalled since it was resolved
+                }
+                dialog.dismiss();
+
+                if (callbackDispatcher != null)
+                {
+                    callbackDispatcher.dispatch(AppRaterBatchCallback.OUTCOME_RATE);
+                }
+            }
+        }).setNeutralButton(content.getButtonLater(), new OnClickListener()
         {
             public void onClick(DialogInterface dialog, int which)
             {
+                AppRaterMetrics.increment(AppRaterMetrics.COUNTER_REMIND_LATER);
+
+                if (callbackHandler != null)
+                {
+                    callbackHandler.processRemindMe();
+                }
+                
+                // Mark as to ask later again
+                store.storeToRateLater();
+
+                dialog.dismiss();
+
+                if (callbackDispatcher != null)
+                {
+                    callbackDispatcher.dispatch(AppRaterBatchCallback.OUTCOME_REMIND_ME);
+                }
+            }
+        }).setNegativeButton(content.getButtonNever(), new OnClickListener()
+        {
+            public void onClick(DialogInterface dialog, int which)
+            {
+                AppRaterMetrics.increment(AppRaterMetrics.COUNTER_NEVER);
+
                 if (callbackHandler != null)
                 {
                     callbackHandler.processNever();
                 }
                 
                 // Mark as never ask for rating again
-                preferences.storeRatingDeclined();
+                store.storeRatingDeclined();
                 
                 dialog.cancel();
+
+                if (callbackDispatcher != null)
+                {
+                    callbackDispatcher.dispatch(AppRaterBatchCallback.OUTCOME_NEVER);
+                }
             }
         });
-        builderInvite.create().show();
+        AlertDialog dialog = builderInvite.create();
+        dialog.setOnDismissListener(new DialogInterface.OnDismissListener()
+        {
+            public void onDismiss(DialogInterface dialog)
+            {
+                releaseDialog(token);
+            }
+        });
+
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_DIALOG_PREPARATION, startNanos);
+
+        try
+        {
+            dialog.show();
+            token.setDialog(dialog);
+            AppRaterMetrics.increment(AppRaterMetrics.COUNTER_DIALOG_SHOWN);
+        }
+        catch (RuntimeException e)
+        {
+            // E.g. the activity is already finishing
+            releaseDialog(token);
+        }
     }
 
     /**
-     * Check if the app rater component should verbose its logs.
-     * 
-     * @return Flag if logging is enabled.
+     * Token of a requested rating dialog. Only keeps a weak reference to the dialog once it is shown,
+     * so neither the dialog nor its activity are kept by the process wide state.
      */
-    public boolean shouldLog()
+    private static final class DialogToken
     {
-        boolean shouldLog = false;
+        private volatile WeakReference<AlertDialog> dialogReference;
 
-        try
+        void setDialog(AlertDialog dialog)
         {
-            ApplicationInfo ai = context.getPackageManager().getApplicationInfo(context.getPackageName(), PackageManager.GET_META_DATA);
-            Bundle aBundle = ai.metaData;
-            shouldLog = aBundle.getBoolean(META_CONFIG_VERBOSE);
+            this.dialogReference = new WeakReference<AlertDialog>(dialog);
         }
-        catch (Exception e)
+
+        /**
+         * Check if the shown dialog is gone without being dismissed.
+         * 
+         * @return Flag if the dialog was shown and got collected or isn't showing anymore.
+         */
+        boolean isGone()
         {
-            // Ignore and reset to default
-            shouldLog = false;
+            WeakReference<AlertDialog> reference = this.dialogReference;
+            if (reference == null)
+            {
+                // Not yet shown
+                return false;
+            }
+            AlertDialog dialog = reference.get();
+            return dialog == null || !dialog.isShowing();
         }
 
-        return shouldLog;
+        /**
+         * Dismiss the dialog in case it is still showing. Called on the UI thread.
+         */
+        void dismiss()
+        {
+            WeakReference<AlertDialog> reference = this.dialogReference;
+            AlertDialog dialog = reference != null ? reference.get() : null;
+            if (dialog != null && dialog.isShowing())
+            {
+                try
+                {
+                    dialog.dismiss();
+                }
+                catch (RuntimeException e)
+                {
+                    // The window is already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if the app rater component should verbose its logs.
+     * 
+     * @return Flag if logging is enabled.
+     */
+    public boolean shouldLog()
+    {
+        return getCurrentConfig().isVerbose();
     }
 }
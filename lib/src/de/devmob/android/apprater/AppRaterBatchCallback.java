@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Interface to be informed about the app rater dialog input in batches.
+ * Registered together with an executor, see {@link AppRater#setAppRaterBatchCallback(AppRaterBatchCallback, java.util.concurrent.Executor)}.
+ * 
+ * @author Friederike Wild
+ */
+public interface AppRaterBatchCallback
+{
+    /** The user chose to proceed and rate now. */
+    public static final int OUTCOME_RATE      = 0;
+    /** The user chose to not rate now but accepts to be asked later. */
+    public static final int OUTCOME_REMIND_ME = 1;
+    /** The user chose to not rate and be never asked again. */
+    public static final int OUTCOME_NEVER     = 2;
+
+    /**
+     * Callback method with all outcomes of the dialog that were queued since the last call, oldest first.
+     * Called on the executor the callback was registered with, never concurrently.
+     * 
+     * @param outcomes The OUTCOME_* constants. Only valid during the call.
+     * @param count The amount of outcomes in the array.
+     */
+    public void processOutcomes(int[] outcomes, int count);
+}
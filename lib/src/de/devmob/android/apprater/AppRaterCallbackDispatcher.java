@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Queue of the dialog outcomes that are delivered to a callback on an executor, so the click handler of
+ * the dialog only has to enqueue them. Outcomes queued while a delivery is pending are delivered together
+ * in one batch. Deliveries never overlap, even on an executor with several threads. In case the executor
+ * rejects a delivery, the outcomes are delivered on the dispatching thread.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterCallbackDispatcher
+{
+    private final Executor              executor;
+    private final AppRaterBatchCallback callback;
+
+    /** The queued outcomes, guarded by this. */
+    private int[]                       queue      = new int[4];
+    private int                         size;
+    /** Flag if a delivery is scheduled or running, guarded by this. */
+    private boolean                     scheduled;
+    /** The outcomes of the running delivery, only accessed by the delivering thread. */
+    private int[]                       batch      = new int[4];
+
+    private final Runnable              deliverTask = new Runnable()
+    {
+        public void run()
+        {
+            deliver();
+        }
+    };
+
+    AppRaterCallbackDispatcher(Executor executor, AppRaterBatchCallback callback)
+    {
+        this.executor = executor;
+        this.callback = callback;
+    }
+
+    /**
+     * Create a dispatcher that delivers each outcome of a batch to the given single outcome callback.
+     * 
+     * @param executor
+     * @param callback
+     * @return The dispatcher.
+     */
+    static AppRaterCallbackDispatcher forCallback(Executor executor, final AppRaterCallback callback)
+    {
+        return new AppRaterCallbackDispatcher(executor, new AppRaterBatchCallback()
+        {
+            public void processOutcomes(int[] outcomes, int count)
+            {
+                for (int index = 0; index < count; index++)
+                {
+                    switch (outcomes[index])
+                    {
+                        case OUTCOME_RATE:
+                            callback.processRate();
+                            break;
+                        case OUTCOME_REMIND_ME:
+                            callback.processRemindMe();
+                            break;
+                        case OUTCOME_NEVER:
+                            callback.processNever();
+                            break;
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Queue the given outcome and schedule its delivery.
+     * 
+     * @param outcome One of the AppRaterBatchCallback.OUTCOME_* constants.
+     */
+    void dispatch(int outcome)
+    {
+        synchronized (this)
+        {
+            if (size == queue.length)
+            {
+                queue = grow(queue, size);
+            }
+            queue[size++] = outcome;
+
+            if (scheduled)
+            {
+                // Delivered with the pending batch
+                return;
+            }
+            scheduled = true;
+        }
+
+        schedule();
+    }
+
+    private void schedule()
+    {
+        try
+        {
+            executor.execute(deliverTask);
+        }
+        catch (RejectedExecutionException e)
+        {
+            // E.g. the executor was shut down, deliver on the calling thread instead of losing the outcomes
+            if (AppRaterLog.isEnabled())
+            {
+                AppRaterLog.log(AppRaterLog.WARN, "Callback executor rejected the delivery, delivering directly: {}", e.toString());
+            }
+            deliver();
+        }
+    }
+
+    /**
+     * Deliver all queued outcomes. Outcomes queued during the callback are delivered with the next run.
+     */
+    private void deliver()
+    {
+        int count;
+        synchronized (this)
+        {
+            count = size;
+            if (batch.length < count)
+            {
+                batch = new int[queue.length];
+            }
+            System.arraycopy(queue, 0, batch, 0, count);
+            size = 0;
+        }
+
+        try
+        {
+            if (count > 0)
+            {
+                callback.processOutcomes(batch, count);
+            }
+        }
+        finally
+        {
+            boolean reschedule;
+            synchronized (this)
+            {
+                reschedule = size > 0;
+                scheduled = reschedule;
+            }
+            if (reschedule)
+            {
+                schedule();
+            }
+        }
+    }
+
+    private static int[] grow(int[] values, int size)
+    {
+        int[] grown = new int[values.length * 2];
+        System.arraycopy(values, 0, grown, 0, size);
+        return grown;
+    }
+}
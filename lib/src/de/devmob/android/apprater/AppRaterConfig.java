@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Immutable snapshot of the app rater configuration.
+ * The values are read once per process from the meta data of the apps AndroidManifest.xml
+ * (see {@link AppRater#getConfig(android.content.Context)}) and shared by all app rater instances.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterConfig
+{
+    /** Store the state in the xml based shared preferences. */
+    public static final int STORAGE_PREFERENCES = 0;
+    /** Store the state in a compact binary file. */
+    public static final int STORAGE_BINARY      = 1;
+    /** Store the state in a compact binary file that is accessed via a memory mapped buffer. */
+    public static final int STORAGE_MAPPED      = 2;
+    /** Store the state in a binary file shared by all processes of the app. */
+    public static final int STORAGE_MULTI_PROCESS = 3;
+
+    /** Rate in the Google Play Store. */
+    public static final int MARKET_PLAY         = 0;
+    /** Rate in the Amazon Appstore. */
+    public static final int MARKET_AMAZON       = 1;
+    /** Rate in the Samsung Galaxy Store. */
+    public static final int MARKET_SAMSUNG      = 2;
+    /** Rate via the configured custom url. */
+    public static final int MARKET_CUSTOM       = 3;
+    /** Rate on the Google Play web page in the browser. */
+    public static final int MARKET_WEB          = 4;
+
+    /** The markets tried by default: Google Play with the web page as fallback. */
+    private static final int[] DEFAULT_MARKETS  = { MARKET_PLAY, MARKET_WEB };
+
+    /** Engagement condition on the recent app launches. */
+    public static final int ENGAGEMENT_LAUNCHES = 0;
+    /** Engagement condition on the recent positive events. */
+    public static final int ENGAGEMENT_EVENTS   = 1;
+
+    /** Default time in seconds the app has to be in the background before it counts as launched again. */
+    public static final int DEFAULT_SESSION_TIMEOUT = 30;
+
+    private static final int[] NO_VALUES        = new int[0];
+
+    private final int     launchBeforeRate;
+    private final int     daysBeforeRate;
+    private final int     eventsBeforeRate;
+    private final boolean verbose;
+    private final boolean writeBehind;
+    private final int     storage;
+    private final int[]   markets;
+    private final String  customMarketUrl;
+    /** The configured event types with their thresholds and weights at the same index. */
+    private final int[]   eventTypes;
+    private final int[]   eventThresholds;
+    private final int[]   eventWeights;
+    /** The engagement conditions with their minimum counts and windows at the same index. */
+    private final int[]   engagementCounters;
+    private final int[]   engagementMinCounts;
+    private final int[]   engagementHours;
+    private final int     sessionTimeout;
+    /** The rule that replaces the built-in checks or null. */
+    private final AppRaterRule rule;
+
+    public AppRaterConfig(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate, boolean verbose, boolean writeBehind, int storage)
+    {
+        this(launchBeforeRate, daysBeforeRate, eventsBeforeRate, verbose, writeBehind, storage, DEFAULT_MARKETS, null);
+    }
+
+    /**
+     * Create the configuration with the markets to rate in.
+     * 
+     * @param launchBeforeRate
+     * @param daysBeforeRate
+     * @param eventsBeforeRate
+     * @param verbose
+     * @param writeBehind
+     * @param storage One of the STORAGE_* constants.
+     * @param markets The MARKET_* constants in the order they are tried. Null for the default markets.
+     * @param customMarketUrl The url of MARKET_CUSTOM, with {} as placeholder of the package name. May be null.
+     * @throws IllegalArgumentException In case the amount of launches or events isn't positive, the amount of days is negative 
+     *         or a market is unknown.
+     */
+    public AppRaterConfig(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate, boolean verbose, boolean writeBehind, int storage, 
+                          int[] markets, String customMarketUrl)
+    {
+        this(launchBeforeRate, daysBeforeRate, eventsBeforeRate, verbose, writeBehind, storage, markets, customMarketUrl, 
+             NO_VALUES, NO_VALUES, NO_VALUES, NO_VALUES, NO_VALUES, NO_VALUES, DEFAULT_SESSION_TIMEOUT, null);
+    }
+
+    /**
+     * Create the complete configuration at once, e.g. by the configuration generated at build time 
+     * (see {@link AppRater#GENERATED_CONFIG_CLASS}), so nothing is parsed at runtime.
+     * 
+     * @param launchBeforeRate
+     * @param daysBeforeRate
+     * @param eventsBeforeRate
+     * @param verbose
+     * @param writeBehind
+     * @param storage One of the STORAGE_* constants.
+     * @param markets The MARKET_* constants in the order they are tried. Null for the default markets.
+     * @param customMarketUrl The url of MARKET_CUSTOM, with {} as placeholder of the package name. May be null.
+     * @param eventTypes The event types, see {@link #withEventType(int, int, int)}.
+     * @param eventThresholds The thresholds of the event types at the same index.
+     * @param eventWeights The weights of the event types at the same index.
+     * @param engagementCounters The counters of the engagement conditions, see {@link #withEngagement(int, int, int)}.
+     * @param engagementMinCounts The minimum counts of the engagement conditions at the same index.
+     * @param engagementHours The windows of the engagement conditions at the same index.
+     * @param sessionTimeout The session timeout in seconds, see {@link #withSessionTimeout(int)}.
+     * @param rule The compiled rule or null for the built-in checks.
+     * @throws IllegalArgumentException In case any value is invalid.
+     */
+    public AppRaterConfig(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate, boolean verbose, boolean writeBehind, int storage, 
+                          int[] markets, String customMarketUrl, int[] eventTypes, int[] eventThresholds, int[] eventWeights, 
+                          int[] engagementCounters, int[] engagementMinCounts, int[] engagementHours, int sessionTimeout, AppRaterRule rule)
+    {
+        // The amounts are used as divisors of the counts
+        if (launchBeforeRate <= 0 || daysBeforeRate < 0 || eventsBeforeRate <= 0)
+        {
+            throw new IllegalArgumentException("Invalid amounts " + launchBeforeRate + "/" + daysBeforeRate + "/" + eventsBeforeRate);
+        }
+        if (eventThresholds.length != eventTypes.length || eventWeights.length != eventTypes.length 
+                || engagementMinCounts.length != engagementCounters.length || engagementHours.length != engagementCounters.length)
+        {
+            throw new IllegalArgumentException("Different amounts of event types or engagement conditions");
+        }
+        if (sessionTimeout < 0)
+        {
+            throw new IllegalArgumentException("Invalid session timeout " + sessionTimeout);
+        }
+        if (markets != null)
+        {
+            for (int market : markets)
+            {
+                checkMarket(market);
+            }
+        }
+        for (int index = 0; index < eventTypes.length; index++)
+        {
+            checkEventType(eventTypes[index], eventThresholds[index], eventWeights[index]);
+        }
+        for (int index = 0; index < engagementCounters.length; index++)
+        {
+            checkEngagement(engagementCounters[index], engagementMinCounts[index], engagementHours[index]);
+        }
+
+        this.launchBeforeRate = launchBeforeRate;
+        this.daysBeforeRate = daysBeforeRate;
+        this.eventsBeforeRate = eventsBeforeRate;
+        this.verbose = verbose;
+        this.writeBehind = writeBehind;
+        this.storage = storage;
+        this.markets = markets != null && markets.length > 0 ? markets.clone() : DEFAULT_MARKETS;
+        this.customMarketUrl = customMarketUrl;
+        this.eventTypes = copyOf(eventTypes);
+        this.eventThresholds = copyOf(eventThresholds);
+        this.eventWeights = copyOf(eventWeights);
+        this.engagementCounters = copyOf(engagementCounters);
+        this.engagementMinCounts = copyOf(engagementMinCounts);
+        this.engagementHours = copyOf(engagementHours);
+        this.sessionTimeout = sessionTimeout;
+        this.rule = rule;
+    }
+
+    /**
+     * Copy the given configuration with other event types, engagement conditions, session timeout and rule.
+     */
+    private AppRaterConfig(AppRaterConfig config, int[] eventTypes, int[] eventThresholds, int[] eventWeights, 
+                           int[] engagementCounters, int[] engagementMinCounts, int[] engagementHours, int sessionTimeout, AppRaterRule rule)
+    {
+        this.launchBeforeRate = config.launchBeforeRate;
+        this.daysBeforeRate = config.daysBeforeRate;
+        this.eventsBeforeRate = config.eventsBeforeRate;
+        this.verbose = config.verbose;
+        this.writeBehind = config.writeBehind;
+        this.storage = config.storage;
+        this.markets = config.markets;
+        this.customMarketUrl = config.customMarketUrl;
+        this.eventTypes = eventTypes;
+        this.eventThresholds = eventThresholds;
+        this.eventWeights = eventWeights;
+        this.engagementCounters = engagementCounters;
+        this.engagementMinCounts = engagementMinCounts;
+        this.engagementHours = engagementHours;
+        this.sessionTimeout = sessionTimeout;
+        this.rule = rule;
+    }
+
+    /**
+     * Create a copy of this configuration with the given event type added or replaced.
+     * 
+     * @param eventType The event type as defined by the app. Any int except Integer.MIN_VALUE.
+     * @param threshold The count of the event type that triggers the rating dialog, and each multiple of it.
+     * @param weight The amount each event of the type adds to its count.
+     * @return The new configuration.
+     */
+    public AppRaterConfig withEventType(int eventType, int threshold, int weight)
+    {
+        checkEventType(eventType, threshold, weight);
+
+        int index = indexOfEventType(eventType);
+        if (index < 0)
+        {
+            index = eventTypes.length;
+        }
+        int[] types = copyWith(eventTypes, index, eventType);
+        int[] thresholds = copyWith(eventThresholds, index, threshold);
+        int[] weights = copyWith(eventWeights, index, weight);
+
+        return new AppRaterConfig(this, types, thresholds, weights, engagementCounters, engagementMinCounts, engagementHours, sessionTimeout, rule);
+    }
+
+    /**
+     * Create a copy of this configuration with the given engagement condition added.
+     * The rating dialog is only shown while all engagement conditions are met, e.g. at least 
+     * 5 launches within the last 7 days.
+     * 
+     * @param counter ENGAGEMENT_LAUNCHES or ENGAGEMENT_EVENTS.
+     * @param minCount The minimum count within the window.
+     * @param hours The window in hours up to now, at most one week.
+     * @return The new configuration.
+     */
+    public AppRaterConfig withEngagement(int counter, int minCount, int hours)
+    {
+        checkEngagement(counter, minCount, hours);
+
+        int index = engagementCounters.length;
+        int[] counters = copyWith(engagementCounters, index, counter);
+        int[] minCounts = copyWith(engagementMinCounts, index, minCount);
+        int[] windows = copyWith(engagementHours, index, hours);
+
+        return new AppRaterConfig(this, eventTypes, eventThresholds, eventWeights, counters, minCounts, windows, sessionTimeout, rule);
+    }
+
+    /**
+     * Create a copy of this configuration with the given session timeout.
+     * Only used while the sessions are tracked, see AppRater.trackSessions().
+     * 
+     * @param seconds The time the app has to be in the background before it counts as launched again.
+     * @return The new configuration.
+     */
+    public AppRaterConfig withSessionTimeout(int seconds)
+    {
+        if (seconds < 0)
+        {
+            throw new IllegalArgumentException("Invalid session timeout " + seconds);
+        }
+
+        return new AppRaterConfig(this, eventTypes, eventThresholds, eventWeights, engagementCounters, engagementMinCounts, engagementHours, seconds, rule);
+    }
+
+    /**
+     * Create a copy of this configuration with the given rule that replaces the built-in launch, day and event checks.
+     * The engagement conditions are still checked in addition to the rule.
+     * 
+     * @param rule The compiled rule or null for the built-in checks.
+     * @return The new configuration.
+     */
+    public AppRaterConfig withRule(AppRaterRule rule)
+    {
+        return new AppRaterConfig(this, eventTypes, eventThresholds, eventWeights, engagementCounters, engagementMinCounts, engagementHours, sessionTimeout, rule);
+    }
+
+    /**
+     * Get the configured amount of app launches before the rating dialog should be shown.
+     *
+     * @return The amount of launches.
+     */
+    public int getLaunchBeforeRate()
+    {
+        return launchBeforeRate;
+    }
+
+    /**
+     * Get the configured amount of days before the rating dialog should be shown.
+     *
+     * @return The amount of days.
+     */
+    public int getDaysBeforeRate()
+    {
+        return daysBeforeRate;
+    }
+
+    /**
+     * Get the configured amount of positive events before the rating dialog should be shown.
+     *
+     * @return The amount of events.
+     */
+    public int getEventsBeforeRate()
+    {
+        return eventsBeforeRate;
+    }
+
+    /**
+     * Check if the app rater component should verbose its logs.
+     *
+     * @return Flag if logging is enabled.
+     */
+    public boolean isVerbose()
+    {
+        return verbose;
+    }
+
+    /**
+     * Check if counter changes should be written in batches instead of on each change.
+     *
+     * @return Flag if write-behind is enabled.
+     */
+    public boolean isWriteBehind()
+    {
+        return writeBehind;
+    }
+
+    /**
+     * Get the configured storage of the app rater state.
+     *
+     * @return One of the STORAGE_* constants.
+     */
+    public int getStorage()
+    {
+        return storage;
+    }
+
+    /**
+     * Get the amount of configured markets.
+     * 
+     * @return The amount of markets.
+     */
+    public int getMarketCount()
+    {
+        return markets.length;
+    }
+
+    /**
+     * Get the configured market at the given position. The markets are tried in this order
+     * and the first one that can be opened on the device is used.
+     * 
+     * @param index
+     * @return One of the MARKET_* constants.
+     */
+    public int getMarket(int index)
+    {
+        return markets[index];
+    }
+
+    /**
+     * Get the configured url of the custom market.
+     * 
+     * @return The url with {} as placeholder of the package name or null.
+     */
+    public String getCustomMarketUrl()
+    {
+        return customMarketUrl;
+    }
+
+    /**
+     * Get the count of the given event type that triggers the rating dialog, and each multiple of it.
+     * 
+     * @param eventType
+     * @return The configured threshold or the amount of events before rate for types that are not configured.
+     */
+    public int getEventThreshold(int eventType)
+    {
+        int index = indexOfEventType(eventType);
+        return index < 0 ? eventsBeforeRate : eventThresholds[index];
+    }
+
+    /**
+     * Get the amount each event of the given type adds to its count.
+     * 
+     * @param eventType
+     * @return The configured weight or 1 for types that are not configured.
+     */
+    public int getEventWeight(int eventType)
+    {
+        int index = indexOfEventType(eventType);
+        return index < 0 ? 1 : eventWeights[index];
+    }
+
+    private int indexOfEventType(int eventType)
+    {
+        for (int index = 0; index < eventTypes.length; index++)
+        {
+            if (eventTypes[index] == eventType)
+            {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the amount of configured engagement conditions.
+     * 
+     * @return The amount of conditions.
+     */
+    public int getEngagementCount()
+    {
+        return engagementCounters.length;
+    }
+
+    /**
+     * Get the counter of the engagement condition at the given position.
+     * 
+     * @param index
+     * @return ENGAGEMENT_LAUNCHES or ENGAGEMENT_EVENTS.
+     */
+    public int getEngagementCounter(int index)
+    {
+        return engagementCounters[index];
+    }
+
+    /**
+     * Get the minimum count of the engagement condition at the given position.
+     * 
+     * @param index
+     * @return The minimum count within the window.
+     */
+    public int getEngagementMinCount(int index)
+    {
+        return engagementMinCounts[index];
+    }
+
+    /**
+     * Get the window of the engagement condition at the given position.
+     * 
+     * @param index
+     * @return The window in hours.
+     */
+    public int getEngagementHours(int index)
+    {
+        return engagementHours[index];
+    }
+
+    /**
+     * Get the time the app has to be in the background before it counts as launched again.
+     * 
+     * @return The timeout in seconds.
+     */
+    public int getSessionTimeout()
+    {
+        return sessionTimeout;
+    }
+
+    /**
+     * Get the rule that replaces the built-in launch, day and event checks.
+     * 
+     * @return The rule or null in case the built-in checks are used.
+     */
+    public AppRaterRule getRule()
+    {
+        return rule;
+    }
+
+    /**
+     * Compile the rule that behaves like the built-in launch, day and event checks for the configured amounts, 
+     * see {@link AppRaterRule#forAmounts(int, int, int)}. Only used by the tests, the decider doesn't evaluate it.
+     * 
+     * @return The compiled rule.
+     */
+    AppRaterRule getDefaultRule()
+    {
+        return AppRaterRule.forAmounts(launchBeforeRate, daysBeforeRate, eventsBeforeRate);
+    }
+
+    /** Check that the given value is one of the MARKET_* constants. */
+    private static void checkMarket(int market)
+    {
+        if (market < MARKET_PLAY || market > MARKET_WEB)
+        {
+            throw new IllegalArgumentException("Invalid market " + market);
+        }
+    }
+
+    /** Check that the given event type can be counted with the given positive threshold and weight. */
+    private static void checkEventType(int eventType, int threshold, int weight)
+    {
+        if (eventType == Integer.MIN_VALUE || threshold <= 0 || weight <= 0)
+        {
+            throw new IllegalArgumentException("Invalid event type " + eventType + ":" + threshold + ":" + weight);
+        }
+    }
+
+    /** Check that the given engagement condition has a known counter, a positive minimum count and a window of at most one week. */
+    private static void checkEngagement(int counter, int minCount, int hours)
+    {
+        if ((counter != ENGAGEMENT_LAUNCHES && counter != ENGAGEMENT_EVENTS) || minCount <= 0 
+                || hours <= 0 || hours > AppRaterTimeBuckets.BUCKET_COUNT)
+        {
+            throw new IllegalArgumentException("Invalid engagement condition " + counter + ":" + minCount + ":" + hours);
+        }
+    }
+
+    private static int[] copyOf(int[] values)
+    {
+        return values.length == 0 ? NO_VALUES : values.clone();
+    }
+
+    /**
+     * Copy the given values with the value at the given index replaced or appended.
+     * 
+     * @param values
+     * @param index Index of an existing value or values.length to append.
+     * @param value
+     * @return The new values.
+     */
+    private static int[] copyWith(int[] values, int index, int value)
+    {
+        int[] copy = new int[Math.max(values.length, index + 1)];
+        System.arraycopy(values, 0, copy, 0, values.length);
+        copy[index] = value;
+        return copy;
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * The decision logic of the app rater: when to show the rating dialog based on the
+ * stored state and the configuration. Counts the launches and events on each check.
+ * 
+ * The built-in checks are hard-coded, they are not evaluated as a rule (see {@link AppRaterRule}). They behave 
+ * like the rule "on_start AND launches % L == 0 AND days >= D OR on_event AND events % E == 0" of the configured 
+ * amounts, the tests check that both give the same answers. The decider precomputes the schedule of the checks 
+ * whenever the state changes (first start, remind later, reset): the time after which the dialog may be shown 
+ * and the next launch and event counts that trigger it. The launch and event triggers are the multiples of the configured 
+ * amounts, the time is the start date plus the configured days. So the common "not yet" answer is a 
+ * single compare of the counted value with the next trigger. As before, only the launches initialize 
+ * the start date, so the time is only computed on the start checks.
+ * 
+ * Once a trigger is reached, the optional engagement conditions of the configuration are checked
+ * against the hourly counts of the last week kept by the store.
+ * 
+ * In case the configuration has its own rule (see {@link AppRaterRule}), the rule replaces the schedule and is 
+ * evaluated after each counted launch or event. For several events counted at once the schedule shows the 
+ * dialog in case a multiple of the events was passed within the batch, a rule only sees the count after it.
+ * 
+ * Not bound to Android, so the same logic can be run on any JVM, e.g. in benchmarks.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterDecider
+{
+    /** Millis of one day. */
+    public static final long     MILLIS_PER_DAY = 1000 * 60 * 60 * 24;
+
+    private final AppRaterStore  store;
+    private final AppRaterConfig config;
+
+    // The precomputed schedule
+    /** The generation of the store state the schedule was computed for. */
+    private volatile int         scheduleGeneration = -1;
+    /** The generation of the store state the eligible time was computed for. */
+    private volatile int         eligibleGeneration = -1;
+    /** The time in millis from when on the dialog may be shown. */
+    private volatile long        nextEligibleTime;
+    /** The next count of launches that triggers the dialog. */
+    private volatile int         nextLaunchTrigger;
+    /** The next count of events that triggers the dialog. */
+    private volatile int         nextEventTrigger;
+
+    public AppRaterDecider(AppRaterStore store, AppRaterConfig config)
+    {
+        this.store = store;
+        this.config = config;
+    }
+
+    public AppRaterStore getStore()
+    {
+        return store;
+    }
+
+    public AppRaterConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Count the app launch and check if the app rating should be shown.
+     * Checks the status of the app launches and the previous app rating usage.
+     * 
+     * @param currentTime The current time in millis.
+     * @return Flag if the dialog should be shown.
+     */
+    public boolean shouldShowRatingOnStart(long currentTime)
+    {
+        // Nothing to count anymore once the user rated or declined
+        if (store.isRatingRequestDeactivated())
+        {
+            return false;
+        }
+
+        AppRaterRule rule = config.getRule();
+        if (rule != null)
+        {
+            store.increaseCountOpened();
+            // Like the built-in checks, the launches initialize the start date even if the rule doesn't read the days
+            store.getStoredStartDate();
+            return rule.test(store, currentTime, true) && isEngaged(currentTime);
+        }
+
+        // Compute the schedule before counting, the trigger is derived from the count before
+        updateSchedule();
+        updateEligibleTime();
+
+        // Increase count
+        int countOpened = store.increaseCountOpened();
+
+        // Not yet the next trigger
+        if (countOpened < nextLaunchTrigger)
+        {
+            return false;
+        }
+
+        // Schedule the next trigger, concurrent callers may have passed it already
+        int launchBeforeRate = config.getLaunchBeforeRate();
+        nextLaunchTrigger = nextMultiple(countOpened, launchBeforeRate);
+        if (countOpened % launchBeforeRate != 0)
+        {
+            return false;
+        }
+
+        // Check if enough days gone by and the user is engaged
+        return currentTime >= nextEligibleTime && isEngaged(currentTime);
+    }
+
+    /**
+     * Count the positive event and check if the app rating should be shown.
+     * Checks the status of the app events and the previous app rating usage.
+     * 
+     * @return Flag if the dialog should be shown.
+     */
+    public boolean shouldShowRatingOnEvent()
+    {
+        // Nothing to count anymore once the user rated or declined
+        if (store.isRatingRequestDeactivated())
+        {
+            return false;
+        }
+
+        AppRaterRule rule = config.getRule();
+        if (rule != null)
+        {
+            store.increaseCountEvents();
+            return testRuleOnEvent(rule);
+        }
+
+        // Compute the schedule before counting, the trigger is derived from the count before
+        updateSchedule();
+
+        // Increase count
+        // Use the returned count, so concurrent callers each see their own value
+        int countEvents = store.increaseCountEvents();
+
+        // Not yet the next trigger
+        if (countEvents < nextEventTrigger)
+        {
+            return false;
+        }
+
+        // Schedule the next trigger, concurrent callers may have passed it already
+        int eventsBeforeRate = config.getEventsBeforeRate();
+        nextEventTrigger = nextMultiple(countEvents, eventsBeforeRate);
+        return countEvents % eventsBeforeRate == 0 && isEngaged(currentTimeMillis());
+    }
+
+    /**
+     * Count several positive events at once and check if the app rating should be shown.
+     * The events are added in a single update, the dialog is shown in case any of them reached
+     * the next trigger.
+     * 
+     * @param amount The amount of events.
+     * @return Flag if the dialog should be shown.
+     */
+    public boolean shouldShowRatingOnEvents(int amount)
+    {
+        // Nothing to count anymore once the user rated or declined
+        if (amount <= 0 || store.isRatingRequestDeactivated())
+        {
+            return false;
+        }
+
+        AppRaterRule rule = config.getRule();
+        if (rule != null)
+        {
+            store.addCountEvents(amount);
+            return testRuleOnEvent(rule);
+        }
+
+        // Compute the schedule before counting, the trigger is derived from the count before
+        updateSchedule();
+
+        int countEvents = store.addCountEvents(amount);
+
+        // Not yet the next trigger
+        if (countEvents < nextEventTrigger)
+        {
+            return false;
+        }
+
+        // Schedule the next trigger, concurrent callers may have passed it already
+        int eventsBeforeRate = config.getEventsBeforeRate();
+        nextEventTrigger = nextMultiple(countEvents, eventsBeforeRate);
+        return passedMultiple(countEvents, amount, eventsBeforeRate) && isEngaged(currentTimeMillis());
+    }
+
+    /**
+     * Count the positive event of the given type and check if the app rating should be shown.
+     * The event adds the weight of its type to the count of the type. The dialog is shown whenever 
+     * the count reaches or passes a multiple of the threshold of the type.
+     * 
+     * @param eventType The event type as defined by the app.
+     * @return Flag if the dialog should be shown.
+     */
+    public boolean shouldShowRatingOnEvent(int eventType)
+    {
+        return shouldShowRatingOnEvents(eventType, 1);
+    }
+
+    /**
+     * Count several positive events of the given type at once and check if the app rating should be shown.
+     * The events are added in a single update, the dialog is shown in case the count passed a multiple 
+     * of the threshold of the type within the batch.
+     * 
+     * @param eventType The event type as defined by the app.
+     * @param amount The amount of events.
+     * @return Flag if the dialog should be shown.
+     */
+    public boolean shouldShowRatingOnEvents(int eventType, int amount)
+    {
+        // Nothing to count anymore once the user rated or declined
+        if (amount <= 0 || store.isRatingRequestDeactivated())
+        {
+            return false;
+        }
+
+        int added = config.getEventWeight(eventType) * amount;
+        int count = store.increaseCountEvents(eventType, added);
+
+        AppRaterRule rule = config.getRule();
+        if (rule != null)
+        {
+            return testRuleOnEvent(rule);
+        }
+
+        if (count < 0)
+        {
+            // No more event types can be counted
+            return false;
+        }
+
+        return passedMultiple(count, added, config.getEventThreshold(eventType)) && isEngaged(currentTimeMillis());
+    }
+
+    /**
+     * Check if all configured engagement conditions are met, e.g. enough launches within the last days.
+     * Only evaluated once a trigger is reached, each condition sums up its window of hourly counts.
+     * 
+     * @param currentTime The current time in millis.
+     * @return Flag if the user is engaged enough. Always true without conditions.
+     */
+    public boolean isEngaged(long currentTime)
+    {
+        for (int index = 0; index < config.getEngagementCount(); index++)
+        {
+            int hours = config.getEngagementHours(index);
+            int count = config.getEngagementCounter(index) == AppRaterConfig.ENGAGEMENT_LAUNCHES 
+                    ? store.getCountOpenedWithin(currentTime, hours) 
+                    : store.getCountEventsWithin(currentTime, hours);
+
+            if (count < config.getEngagementMinCount(index))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the amount of full days since the stored start date.
+     * 
+     * @param currentTime The current time in millis.
+     * @return The days past.
+     */
+    public long getDaysPastSinceStart(long currentTime)
+    {
+        return (currentTime - store.getStoredStartDate()) / MILLIS_PER_DAY;
+    }
+
+    /**
+     * Get the time from when on the dialog may be shown.
+     * 
+     * @return The time in millis.
+     */
+    public long getNextEligibleTime()
+    {
+        updateEligibleTime();
+        return nextEligibleTime;
+    }
+
+    /**
+     * Get the next count of launches that triggers the dialog.
+     * 
+     * @return The count of launches.
+     */
+    public int getNextLaunchTrigger()
+    {
+        updateSchedule();
+        return nextLaunchTrigger;
+    }
+
+    /**
+     * Get the next count of events that triggers the dialog.
+     * 
+     * @return The count of events.
+     */
+    public int getNextEventTrigger()
+    {
+        updateSchedule();
+        return nextEventTrigger;
+    }
+
+    /**
+     * Evaluate the rule of the configuration after an event was counted.
+     * 
+     * @param rule
+     * @return Flag if the dialog should be shown.
+     */
+    private boolean testRuleOnEvent(AppRaterRule rule)
+    {
+        long currentTime = currentTimeMillis();
+        return rule.test(store, currentTime, false) && isEngaged(currentTime);
+    }
+
+    /**
+     * Get the current time to check the engagement conditions on events.
+     * Overwrite to run the decision logic on a simulated clock.
+     * 
+     * @return The time in millis.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Compute the time from when on the dialog may be shown again in case the state of the store 
+     * changed since the last computation. Initializes the start date on the first call.
+     */
+    private void updateEligibleTime()
+    {
+        if (store.getGeneration() == eligibleGeneration)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            int generation = store.getGeneration();
+            if (generation == eligibleGeneration)
+            {
+                return;
+            }
+
+            nextEligibleTime = store.getStoredStartDate() + config.getDaysBeforeRate() * MILLIS_PER_DAY;
+            eligibleGeneration = generation;
+        }
+    }
+
+    /**
+     * Compute the launch and event triggers again in case the state of the store changed since the last computation.
+     * Doesn't touch the start date.
+     */
+    private void updateSchedule()
+    {
+        if (store.getGeneration() == scheduleGeneration)
+        {
+            return;
+        }
+
+        synchronized (this)
+        {
+            int generation = store.getGeneration();
+            if (generation == scheduleGeneration)
+            {
+                return;
+            }
+
+            nextLaunchTrigger = nextMultiple(store.getCountOpened(), config.getLaunchBeforeRate());
+            nextEventTrigger = nextMultiple(store.getCountEvents(), config.getEventsBeforeRate());
+            scheduleGeneration = generation;
+        }
+    }
+
+    /**
+     * Check if adding to a count reached or passed a multiple of the given threshold.
+     * 
+     * @param count The count after adding.
+     * @param added The amount that was added.
+     * @param threshold
+     * @return Flag if a multiple was reached.
+     */
+    private static boolean passedMultiple(int count, int added, int threshold)
+    {
+        return count / threshold > (count - added) / threshold;
+    }
+
+    /**
+     * Get the smallest multiple of the given amount that is bigger than the given count.
+     * 
+     * @param count
+     * @param amount
+     * @return The next multiple.
+     */
+    private static int nextMultiple(int count, int amount)
+    {
+        return (count / amount + 1) * amount;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.Locale;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+
+/**
+ * The resolved content of the rating dialog: the app information, the market to rate in and all texts.
+ * Resolved once per process, see {@link AppRater#prefetch(Context)}, and only resolved again 
+ * when the locale changes. Showing the dialog then only needs to build it.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterDialogContent
+{
+    private final Locale locale;
+    private final String packageName;
+    private final String appName;
+    private final AppRaterMarket market;
+    private final String title;
+    private final String message;
+    private final String buttonOK;
+    private final String buttonLater;
+    private final String buttonNever;
+
+    private AppRaterDialogContent(Locale locale, String packageName, String appName, AppRaterMarket market, Resources resources)
+    {
+        this.locale = locale;
+        this.packageName = packageName;
+        this.appName = appName;
+        this.market = market;
+
+        this.title = resources.getString(R.string.dialog_rate_title, appName);
+        this.message = resources.getString(R.string.dialog_rate_message, appName);
+        this.buttonOK = resources.getString(R.string.rating_dialog_button_ok);
+        this.buttonLater = resources.getString(R.string.rating_dialog_button_later);
+        this.buttonNever = resources.getString(R.string.rating_dialog_button_never);
+    }
+
+    /**
+     * Resolve the content via the package manager and the resources. May block, so better not call this from the UI thread.
+     * 
+     * @param context
+     * @return The resolved content or null in case the package information is not available.
+     */
+    static AppRaterDialogContent load(Context context)
+    {
+        try
+        {
+            // Get the package info manager from the given context
+            PackageManager manager = context.getPackageManager();
+            PackageInfo info = manager.getPackageInfo(context.getPackageName(), 0);
+            Resources resources = context.getResources();
+
+            // Dynamically read the package name and the application name
+            String packageName = info.packageName;
+            String appName = resources.getString(info.applicationInfo.labelRes);
+
+            // The first configured market that is available on the device
+            AppRaterMarket market = AppRaterMarket.resolve(context, AppRater.getConfig(context), packageName);
+            return new AppRaterDialogContent(getLocale(context), packageName, appName, market, resources);
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Check if the content was resolved for the current locale of the given context.
+     * 
+     * @param context
+     * @return Flag if the content can still be used.
+     */
+    boolean isValidFor(Context context)
+    {
+        Locale current = getLocale(context);
+        return locale == null ? current == null : locale.equals(current);
+    }
+
+    String getPackageName()
+    {
+        return packageName;
+    }
+
+    String getAppName()
+    {
+        return appName;
+    }
+
+    /**
+     * Get the market to rate in.
+     * 
+     * @return The market or null in case none of the configured markets is available.
+     */
+    AppRaterMarket getMarket()
+    {
+        return market;
+    }
+
+    String getTitle()
+    {
+        return title;
+    }
+
+    String getMessage()
+    {
+        return message;
+    }
+
+    String getButtonOK()
+    {
+        return buttonOK;
+    }
+
+    String getButtonLater()
+    {
+        return buttonLater;
+    }
+
+    String getButtonNever()
+    {
+        return buttonNever;
+    }
+
+    private static Locale getLocale(Context context)
+    {
+        return context.getResources().getConfiguration().locale;
+    }
+}
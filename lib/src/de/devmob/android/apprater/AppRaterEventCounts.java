@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the named event types, kept in a fixed-size table of primitive ids, counts and
+ * the times of the last events.
+ * The slots are filled in order of the first occurrence of an event type and never freed,
+ * so looking up a type is a scan of a few ints. Updates are lock-free.
+ * 
+ * At most {@link #CAPACITY} event types are counted, events of further types are ignored.
+ * Any int except Integer.MIN_VALUE can be used as event type.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterEventCounts
+{
+    /** The maximum amount of event types. */
+    static final int                 CAPACITY = 16;
+
+    /** Marker of a free slot. */
+    private static final int         EMPTY    = Integer.MIN_VALUE;
+
+    private final AtomicIntegerArray ids      = new AtomicIntegerArray(CAPACITY);
+    private final AtomicIntegerArray counts   = new AtomicIntegerArray(CAPACITY);
+    /** The time of the last event per type, kept when the counts are cleared. */
+    private final AtomicLongArray    times    = new AtomicLongArray(CAPACITY);
+
+    AppRaterEventCounts()
+    {
+        for (int index = 0; index < CAPACITY; index++)
+        {
+            ids.set(index, EMPTY);
+        }
+    }
+
+    /**
+     * Add to the counter of the given event type.
+     * 
+     * @param eventId
+     * @param amount
+     * @return The increased count or -1 in case the table is full.
+     */
+    int add(int eventId, int amount)
+    {
+        int index = indexOf(eventId, true);
+        return index < 0 ? -1 : counts.addAndGet(index, amount);
+    }
+
+    /**
+     * Add to the counter of the given event type and remember the time of the event.
+     * 
+     * @param eventId
+     * @param amount
+     * @param time The time of the event in millis. Older times than the known one are ignored.
+     * @return The increased count or -1 in case the table is full.
+     */
+    int add(int eventId, int amount, long time)
+    {
+        int index = indexOf(eventId, true);
+        if (index < 0)
+        {
+            return -1;
+        }
+
+        updateTime(index, time);
+        return counts.addAndGet(index, amount);
+    }
+
+    /**
+     * Get the time of the last event of the given type.
+     * 
+     * @param eventId
+     * @return The time in millis or 0 in case there was none.
+     */
+    long getTime(int eventId)
+    {
+        int index = indexOf(eventId, false);
+        return index < 0 ? 0 : times.get(index);
+    }
+
+    /**
+     * Set the time of the last event of the given type, in case it is newer than the known one.
+     * 
+     * @param eventId
+     * @param time
+     */
+    void setTime(int eventId, long time)
+    {
+        int index = indexOf(eventId, true);
+        if (index >= 0)
+        {
+            updateTime(index, time);
+        }
+    }
+
+    /**
+     * Get the counter of the given event type.
+     * 
+     * @param eventId
+     * @return The count.
+     */
+    int get(int eventId)
+    {
+        int index = indexOf(eventId, false);
+        return index < 0 ? 0 : counts.get(index);
+    }
+
+    /**
+     * Set the counter of the given event type.
+     * 
+     * @param eventId
+     * @param count
+     */
+    void set(int eventId, int count)
+    {
+        int index = indexOf(eventId, true);
+        if (index >= 0)
+        {
+            counts.set(index, count);
+        }
+    }
+
+    /**
+     * Reset all counters to 0. The times of the last events are kept.
+     */
+    void clear()
+    {
+        for (int index = 0; index < CAPACITY; index++)
+        {
+            counts.set(index, 0);
+        }
+    }
+
+    /**
+     * Reset all counters and the times of the last events to 0.
+     */
+    void clearAll()
+    {
+        for (int index = 0; index < CAPACITY; index++)
+        {
+            counts.set(index, 0);
+            times.set(index, 0);
+        }
+    }
+
+    /**
+     * Copy the counters and the times of the last events of the types with a count or a time.
+     * 
+     * @param eventIds Array of at least {@link #CAPACITY} elements to copy the event types to.
+     * @param eventCounts Array of at least {@link #CAPACITY} elements to copy the counts to.
+     * @param eventTimes Array of at least {@link #CAPACITY} elements to copy the times to.
+     * @return The amount of copied counters.
+     */
+    int copyTo(int[] eventIds, int[] eventCounts, long[] eventTimes)
+    {
+        int size = 0;
+        for (int index = 0; index < CAPACITY; index++)
+        {
+            int id = ids.get(index);
+            if (id == EMPTY)
+            {
+                break;
+            }
+
+            int count = counts.get(index);
+            long time = times.get(index);
+            if (count != 0 || time != 0)
+            {
+                eventIds[size] = id;
+                eventCounts[size] = count;
+                eventTimes[size] = time;
+                size++;
+            }
+        }
+        return size;
+    }
+
+    private void updateTime(int index, long time)
+    {
+        long current;
+        do
+        {
+            current = times.get(index);
+        }
+        while (time > current && !times.compareAndSet(index, current, time));
+    }
+
+    private int indexOf(int eventId, boolean insert)
+    {
+        if (eventId == EMPTY)
+        {
+            return -1;
+        }
+
+        for (int index = 0; index < CAPACITY; index++)
+        {
+            int id = ids.get(index);
+            if (id == eventId)
+            {
+                return index;
+            }
+            if (id == EMPTY)
+            {
+                if (!insert)
+                {
+                    return -1;
+                }
+                // Take the free slot, unless a concurrent caller was faster
+                if (ids.compareAndSet(index, EMPTY, eventId) || ids.get(index) == eventId)
+                {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.io.File;
+
+/**
+ * Store that writes the app rater state to a plain binary file (see {@link AppRaterStateFile}) on each change.
+ * Decisions of the user are forced to the storage device, counter changes are only written without waiting for the storage device.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterFileStore extends AppRaterMemoryStore
+{
+    private final AppRaterStateFile stateFile;
+
+    /** Reused arrays to write the counts and times of the event types, guarded by the state file. */
+    private final int[]             eventIds    = new int[MAX_EVENT_TYPES];
+    private final int[]             eventCounts = new int[MAX_EVENT_TYPES];
+    private final long[]            eventTimes  = new long[MAX_EVENT_TYPES];
+
+    /**
+     * Create the store and load the state stored in the given file.
+     * 
+     * @param file The file to use. Created on the first change.
+     * @param memoryMapped Flag if the file should be accessed via a memory mapped buffer.
+     */
+    public AppRaterFileStore(File file, boolean memoryMapped)
+    {
+        this.stateFile = new AppRaterStateFile(file, memoryMapped);
+
+        long startNanos = AppRaterMetrics.start();
+        if (stateFile.read())
+        {
+            setState(stateFile.getStartDate(), stateFile.getCountOpened(), stateFile.getCountEvents(), stateFile.isRated(), stateFile.isDeclined());
+            for (int index = 0; index < stateFile.getEventTypeCount(); index++)
+            {
+                setCountEvents(stateFile.getEventId(index), stateFile.getEventCount(index));
+                setLastEventTime(stateFile.getEventId(index), stateFile.getEventTime(index));
+            }
+            stateFile.copyRecentOpenedTo(getRecentOpened());
+            stateFile.copyRecentEventsTo(getRecentEvents());
+        }
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_READ, startNanos);
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#flush()
+     */
+    @Override
+    public void flush()
+    {
+        write(true);
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#onChanged(boolean)
+     */
+    @Override
+    protected void onChanged(boolean durable)
+    {
+        write(durable);
+    }
+
+    private void write(boolean sync)
+    {
+        // Serialize the snapshot and the write to keep the order of concurrent changes
+        synchronized (stateFile)
+        {
+            long startNanos = AppRaterMetrics.start();
+            int eventTypeCount = copyCountEvents(eventIds, eventCounts, eventTimes);
+            stateFile.write(getStartDate(), getCountOpened(), getCountEvents(), isRated(), isDeclined(), eventIds, eventCounts, eventTimes, eventTypeCount, 
+                            getRecentOpened(), getRecentEvents(), 0, sync);
+            AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_COMMIT, startNanos);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+/**
+ * Activity lifecycle callbacks that detect the sessions of the app, see {@link AppRaterSession}.
+ * Requires API level 14, so only referenced after checking the platform version.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterLifecycleCallbacks implements Application.ActivityLifecycleCallbacks
+{
+    private static AppRaterLifecycleCallbacks instance;
+
+    private AppRaterLifecycleCallbacks()
+    {
+    }
+
+    /**
+     * Register the callbacks at the given application. Registering more than once has no effect.
+     * 
+     * @param application
+     */
+    static synchronized void register(Application application)
+    {
+        if (instance == null)
+        {
+            instance = new AppRaterLifecycleCallbacks();
+            application.registerActivityLifecycleCallbacks(instance);
+            AppRaterSession.setTracking(true);
+        }
+    }
+
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState)
+    {
+        AppRaterSession.onForeground();
+    }
+
+    public void onActivityStarted(Activity activity)
+    {
+        AppRaterSession.onForeground();
+        AppRaterSession.onActivityStarted();
+    }
+
+    public void onActivityResumed(Activity activity)
+    {
+    }
+
+    public void onActivityPaused(Activity activity)
+    {
+    }
+
+    public void onActivityStopped(Activity activity)
+    {
+        AppRaterSession.onActivityStopped();
+    }
+
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState)
+    {
+    }
+
+    public void onActivityDestroyed(Activity activity)
+    {
+    }
+}
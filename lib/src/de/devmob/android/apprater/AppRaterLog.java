@@ -0,0 +1,265 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.List;
+
+/**
+ * Structured logging of the app rater.
+ * Records are handed to the registered {@link AppRaterLogListener}s and optionally kept in a
+ * bounded in-memory ring buffer, so diagnostics can be read without scraping the system log.
+ * 
+ * Logging is off as long as there is neither a listener nor a buffer. Check {@link #isEnabled()}
+ * before logging, then a disabled log costs a single volatile read and no string building:
+ * <pre>
+ * if (AppRaterLog.isEnabled())
+ * {
+ *     AppRaterLog.log(AppRaterLog.INFO, "Current count open: {}", count);
+ * }
+ * </pre>
+ * 
+ * Messages use {} placeholders and are only formatted when a record is read.
+ * The levels match the priorities of android.util.Log.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterLog
+{
+    /** Level of detailed debug records. */
+    public static final int                    DEBUG          = 3;
+    /** Level of informational records. */
+    public static final int                    INFO           = 4;
+    /** Level of warnings. */
+    public static final int                    WARN           = 5;
+
+    private static final AppRaterLogListener[] NO_LISTENERS   = new AppRaterLogListener[0];
+    private static final AppRaterLogRecord[]   NO_RECORDS     = new AppRaterLogRecord[0];
+
+    private static final Object                lock           = new Object();
+
+    /** Flag if there is any consumer of the records. */
+    private static volatile boolean            enabled;
+    /** The registered listeners, replaced as a whole on changes. */
+    private static volatile AppRaterLogListener[] listeners   = NO_LISTENERS;
+
+    // Ring buffer, guarded by the lock
+    private static AppRaterLogRecord[]         buffer         = NO_RECORDS;
+    private static long                        lastSequence;
+
+    private AppRaterLog()
+    {
+    }
+
+    /**
+     * Check if records are consumed. Guard each log call with this check.
+     * 
+     * @return Flag if logging is enabled.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Set the amount of records to keep in memory. The oldest records are dropped when the buffer is full.
+     * Changing the capacity clears the buffer.
+     * 
+     * @param capacity The amount of records to keep, 0 to turn the buffer off.
+     */
+    public static void setBufferCapacity(int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+
+        synchronized (lock)
+        {
+            buffer = capacity == 0 ? NO_RECORDS : new AppRaterLogRecord[capacity];
+            updateEnabled();
+        }
+    }
+
+    /**
+     * Register a listener for new records. Adding the same listener twice has no effect.
+     * 
+     * @param listener
+     */
+    public static void addListener(AppRaterLogListener listener)
+    {
+        synchronized (lock)
+        {
+            AppRaterLogListener[] current = listeners;
+            for (AppRaterLogListener registered : current)
+            {
+                if (registered == listener)
+                {
+                    return;
+                }
+            }
+
+            AppRaterLogListener[] changed = new AppRaterLogListener[current.length + 1];
+            System.arraycopy(current, 0, changed, 0, current.length);
+            changed[current.length] = listener;
+            listeners = changed;
+            updateEnabled();
+        }
+    }
+
+    /**
+     * Unregister a listener.
+     * 
+     * @param listener
+     */
+    public static void removeListener(AppRaterLogListener listener)
+    {
+        synchronized (lock)
+        {
+            AppRaterLogListener[] current = listeners;
+            for (int i = 0; i < current.length; i++)
+            {
+                if (current[i] == listener)
+                {
+                    AppRaterLogListener[] changed = new AppRaterLogListener[current.length - 1];
+                    System.arraycopy(current, 0, changed, 0, i);
+                    System.arraycopy(current, i + 1, changed, i, changed.length - i);
+                    listeners = changed;
+                    updateEnabled();
+                    return;
+                }
+            }
+        }
+    }
+
+    public static void log(int level, String message)
+    {
+        log(level, message, null, null);
+    }
+
+    public static void log(int level, String pattern, Object arg0)
+    {
+        log(level, pattern, arg0, null);
+    }
+
+    /**
+     * Write a record. Does nothing in case logging is not enabled.
+     * 
+     * @param level One of the level constants.
+     * @param pattern The message with up to two {} placeholders.
+     * @param arg0 The value of the first placeholder.
+     * @param arg1 The value of the second placeholder.
+     */
+    public static void log(int level, String pattern, Object arg0, Object arg1)
+    {
+        if (!enabled)
+        {
+            return;
+        }
+
+        AppRaterLogRecord record;
+        synchronized (lock)
+        {
+            long sequence = ++lastSequence;
+            record = new AppRaterLogRecord(sequence, System.currentTimeMillis(), level, pattern, arg0, arg1);
+
+            AppRaterLogRecord[] records = buffer;
+            if (records.length > 0)
+            {
+                records[(int) (sequence % records.length)] = record;
+            }
+        }
+
+        AppRaterLogListener[] current = listeners;
+        for (int i = 0; i < current.length; i++)
+        {
+            current[i].onLog(record);
+        }
+    }
+
+    /**
+     * Copy the buffered records written after the given sequence number, oldest first.
+     * Pass the returned sequence number on the next call to only get new records.
+     * Records that were already dropped from the buffer are skipped.
+     * 
+     * @param afterSequence The sequence number of the last record already read, 0 to read all.
+     * @param out The list to add the records to.
+     * @return The sequence number of the last written record.
+     */
+    public static long getRecords(long afterSequence, List<AppRaterLogRecord> out)
+    {
+        synchronized (lock)
+        {
+            AppRaterLogRecord[] records = buffer;
+            long first = Math.max(afterSequence + 1, lastSequence - records.length + 1);
+            for (long sequence = first; sequence <= lastSequence; sequence++)
+            {
+                AppRaterLogRecord record = records[(int) (sequence % records.length)];
+                // Entries from before the last resize are empty
+                if (record != null && record.getSequence() == sequence)
+                {
+                    out.add(record);
+                }
+            }
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Drop all buffered records. The sequence numbers continue.
+     */
+    public static void clear()
+    {
+        synchronized (lock)
+        {
+            AppRaterLogRecord[] records = buffer;
+            for (int i = 0; i < records.length; i++)
+            {
+                records[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Get a readable name of the given level.
+     * 
+     * @param level
+     * @return The name of the level.
+     */
+    public static String getLevelName(int level)
+    {
+        switch (level)
+        {
+            case DEBUG:
+                return "D";
+            case INFO:
+                return "I";
+            case WARN:
+                return "W";
+            default:
+                return String.valueOf(level);
+        }
+    }
+
+    private static void updateEnabled()
+    {
+        enabled = listeners.length > 0 || buffer.length > 0;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Listener to receive the log records of the app rater as they are written.
+ * Register via {@link AppRaterLog#addListener(AppRaterLogListener)}.
+ * 
+ * The listener is called on the thread that logs, so keep the work short.
+ *
+ * @author Friederike Wild
+ */
+public interface AppRaterLogListener
+{
+    /**
+     * Called for each new log record.
+     * 
+     * @param record The log record.
+     */
+    public void onLog(AppRaterLogRecord record);
+}
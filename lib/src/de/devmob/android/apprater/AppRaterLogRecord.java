@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Structured log record of the app rater. The message is only formatted on the first
+ * call of {@link #getMessage()}, so records that are never read cost no string building.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterLogRecord
+{
+    /** Placeholder in the pattern that is replaced by the next argument. */
+    private static final String PLACEHOLDER = "{}";
+
+    private final long          sequence;
+    private final long          time;
+    private final int           level;
+    private final String        pattern;
+    private final Object        arg0;
+    private final Object        arg1;
+
+    /** The formatted message, created on first usage. */
+    private volatile String     message;
+
+    AppRaterLogRecord(long sequence, long time, int level, String pattern, Object arg0, Object arg1)
+    {
+        this.sequence = sequence;
+        this.time = time;
+        this.level = level;
+        this.pattern = pattern;
+        this.arg0 = arg0;
+        this.arg1 = arg1;
+    }
+
+    /**
+     * Get the sequence number of the record. The numbers of all records of the process
+     * are strictly increasing, starting with 1.
+     * 
+     * @return The sequence number.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * Get the time the record was written.
+     * 
+     * @return The time in millis since epoch.
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Get the level of the record.
+     * 
+     * @return One of the AppRaterLog level constants.
+     */
+    public int getLevel()
+    {
+        return level;
+    }
+
+    /**
+     * Get the unformatted message pattern with {} placeholders for the arguments.
+     * 
+     * @return The pattern.
+     */
+    public String getPattern()
+    {
+        return pattern;
+    }
+
+    /**
+     * Get the first argument of the message.
+     * 
+     * @return The argument or null.
+     */
+    public Object getArg0()
+    {
+        return arg0;
+    }
+
+    /**
+     * Get the second argument of the message.
+     * 
+     * @return The argument or null.
+     */
+    public Object getArg1()
+    {
+        return arg1;
+    }
+
+    /**
+     * Get the formatted message.
+     * 
+     * @return The pattern with the placeholders replaced by the arguments.
+     */
+    public String getMessage()
+    {
+        String result = message;
+        if (result == null)
+        {
+            result = format();
+            message = result;
+        }
+        return result;
+    }
+
+    private String format()
+    {
+        int first = pattern.indexOf(PLACEHOLDER);
+        if (first < 0)
+        {
+            return pattern;
+        }
+
+        StringBuilder builder = new StringBuilder(pattern.length() + 16);
+        builder.append(pattern, 0, first).append(arg0);
+
+        int rest = first + PLACEHOLDER.length();
+        int second = pattern.indexOf(PLACEHOLDER, rest);
+        if (second >= 0)
+        {
+            builder.append(pattern, rest, second).append(arg1);
+            rest = second + PLACEHOLDER.length();
+        }
+
+        return builder.append(pattern, rest, pattern.length()).toString();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return sequence + " " + AppRaterLog.getLevelName(level) + " " + getMessage();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import android.util.Log;
+
+/**
+ * Log listener that writes the app rater records to the system log.
+ * Enabled via the verbose meta data flag, see {@link AppRater#META_CONFIG_VERBOSE}.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterLogcat implements AppRaterLogListener
+{
+    private static final AppRaterLogcat INSTANCE = new AppRaterLogcat();
+
+    private AppRaterLogcat()
+    {
+    }
+
+    /**
+     * Turn writing the app rater records to the system log on or off.
+     * 
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        if (enabled)
+        {
+            AppRaterLog.addListener(INSTANCE);
+        }
+        else
+        {
+            AppRaterLog.removeListener(INSTANCE);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterLogListener#onLog(de.devmob.android.apprater.AppRaterLogRecord)
+     */
+    public void onLog(AppRaterLogRecord record)
+    {
+        Log.println(record.getLevel(), AppRater.LOG_TAG, record.getMessage());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+
+/**
+ * Market to rate the app in, resolved from the configured markets as the first one 
+ * that can be opened on the device. See {@link AppRater#META_CONFIG_MARKETS}.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterMarket
+{
+    /** Names of the markets as used in the meta data, indexed by the AppRaterConfig.MARKET_* constants. */
+    private static final String[] NAMES    = { "play", "amazon", "samsung", "custom", "web" };
+
+    /** Links to the detail page of a package, indexed by the AppRaterConfig.MARKET_* constants. */
+    private static final String[] LINKS    = {
+            "market://details?id=", 
+            "amzn://apps/android?p=", 
+            "samsungapps://ProductDetail/", 
+            null, 
+            "https://play.google.com/store/apps/details?id=" };
+
+    /** Packages of the market apps, indexed by the AppRaterConfig.MARKET_* constants. Null if any app may handle the link. */
+    private static final String[] PACKAGES = {
+            "com.android.vending", 
+            "com.amazon.venezia", 
+            "com.sec.android.app.samsungapps", 
+            null, 
+            null };
+
+    private final int    market;
+    private final String link;
+    private final String marketPackage;
+
+    private AppRaterMarket(int market, String link, String marketPackage)
+    {
+        this.market = market;
+        this.link = link;
+        this.marketPackage = marketPackage;
+    }
+
+    /**
+     * Get the market of the given name.
+     * 
+     * @param name
+     * @return One of the AppRaterConfig.MARKET_* constants or -1 in case the name is unknown.
+     */
+    static int getMarket(String name)
+    {
+        for (int market = 0; market < NAMES.length; market++)
+        {
+            if (NAMES[market].equals(name))
+            {
+                return market;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolve the first of the configured markets that can be opened on the device.
+     * Queries the package manager, so better not call this from the UI thread.
+     * 
+     * @param context
+     * @param config
+     * @param packageName The package name of the app to rate.
+     * @return The market or null in case none of them can be opened.
+     */
+    static AppRaterMarket resolve(Context context, AppRaterConfig config, String packageName)
+    {
+        PackageManager manager = context.getPackageManager();
+
+        for (int index = 0; index < config.getMarketCount(); index++)
+        {
+            int market = config.getMarket(index);
+            String link = createLink(market, config, packageName);
+            if (link == null)
+            {
+                continue;
+            }
+
+            AppRaterMarket candidate = new AppRaterMarket(market, link, PACKAGES[market]);
+            if (manager.resolveActivity(candidate.createIntent(), 0) != null)
+            {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+
+    private static String createLink(int market, AppRaterConfig config, String packageName)
+    {
+        if (market == AppRaterConfig.MARKET_CUSTOM)
+        {
+            String url = config.getCustomMarketUrl();
+            return url != null ? url.replace("{}", packageName) : null;
+        }
+
+        return LINKS[market] + packageName;
+    }
+
+    /**
+     * Create the intent to open the detail page of the app in this market.
+     * 
+     * @return The intent.
+     */
+    Intent createIntent()
+    {
+        Intent intent = new Intent(Intent.ACTION_VIEW, Uri.parse(link));
+        if (marketPackage != null)
+        {
+            intent.setPackage(marketPackage);
+        }
+        return intent;
+    }
+
+    /**
+     * Get the name of the market.
+     * 
+     * @return The name as used in the meta data.
+     */
+    String getName()
+    {
+        return NAMES[market];
+    }
+
+    /**
+     * Get the link to the detail page of the app.
+     * 
+     * @return The link.
+     */
+    String getLink()
+    {
+        return link;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Store that keeps the app rater state in memory only.
+ * Useful for tests and benchmarks and as base of the persisting stores, which get informed about
+ * each change via {@link #onChanged(boolean)}.
+ * 
+ * All methods are thread safe. The counters are updated lock-free, so concurrent callers
+ * never loose an increment and never block each other. The decisions of the user are kept
+ * in a single volatile field, so checking for a terminal state is a single volatile read.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterMemoryStore implements AppRaterStore
+{
+    /** Bit of the decisions in case the user rated. */
+    private static final int    DECISION_RATED    = 1;
+    /** Bit of the decisions in case the user declined to rate. */
+    private static final int    DECISION_DECLINED = 2;
+
+    /** The maximum amount of event types that are counted. Events of further types are ignored. */
+    public static final int     MAX_EVENT_TYPES   = AppRaterEventCounts.CAPACITY;
+
+    /** Background thread shared by all persisting stores to write pending changes. Created on first usage. */
+    private static ScheduledExecutorService flushExecutor;
+
+    private final AtomicLong    startDate   = new AtomicLong();
+    private final AtomicInteger countOpened = new AtomicInteger();
+    private final AtomicInteger countEvents = new AtomicInteger();
+    private final AppRaterEventCounts eventCounts = new AppRaterEventCounts();
+    /** The launches and the events of the last week per hour. */
+    private final AppRaterTimeBuckets recentOpened = new AppRaterTimeBuckets();
+    private final AppRaterTimeBuckets recentEvents = new AppRaterTimeBuckets();
+    /** The decisions of the user as DECISION_* bits. */
+    private final AtomicInteger decisions   = new AtomicInteger();
+    private final AtomicInteger generation  = new AtomicInteger();
+
+    public boolean isRatingRequestDeactivated()
+    {
+        return decisions.get() != 0;
+    }
+
+    public boolean isRatingRequestDeclined()
+    {
+        return (decisions.get() & DECISION_DECLINED) != 0;
+    }
+
+    public long getStoredStartDate()
+    {
+        long storedDate = startDate.get();
+
+        if (storedDate == 0)
+        {
+            // Only the first caller initializes the date, all others use its value
+            long currentDate = currentTimeMillis();
+            if (startDate.compareAndSet(0, currentDate))
+            {
+                onChanged(false);
+            }
+            storedDate = startDate.get();
+        }
+
+        return storedDate;
+    }
+
+    public int increaseCountOpened()
+    {
+        int count = countOpened.incrementAndGet();
+        recentOpened.add(currentTimeMillis(), 1);
+        onChanged(false);
+        return count;
+    }
+
+    public int getCountOpened()
+    {
+        return countOpened.get();
+    }
+
+    public int increaseCountEvents()
+    {
+        int count = countEvents.incrementAndGet();
+        recentEvents.add(currentTimeMillis(), 1);
+        onChanged(false);
+        return count;
+    }
+
+    public int addCountEvents(int amount)
+    {
+        int count = countEvents.addAndGet(amount);
+        recentEvents.add(currentTimeMillis(), amount);
+        onChanged(false);
+        return count;
+    }
+
+    public int getCountEvents()
+    {
+        return countEvents.get();
+    }
+
+    public int increaseCountEvents(int eventId, int amount)
+    {
+        int count = eventCounts.add(eventId, amount, currentTimeMillis());
+        if (count >= 0)
+        {
+            onChanged(false);
+        }
+        return count;
+    }
+
+    public int getCountEvents(int eventId)
+    {
+        return eventCounts.get(eventId);
+    }
+
+    public long getLastEventTime(int eventId)
+    {
+        return eventCounts.getTime(eventId);
+    }
+
+    public int getCountOpenedWithin(long currentTime, int hours)
+    {
+        return recentOpened.sum(currentTime, hours);
+    }
+
+    public int getCountEventsWithin(long currentTime, int hours)
+    {
+        return recentEvents.sum(currentTime, hours);
+    }
+
+    public int getGeneration()
+    {
+        return generation.get();
+    }
+
+    public void reset()
+    {
+        // Clean up all stored values
+        countOpened.set(0);
+        countEvents.set(0);
+        eventCounts.clearAll();
+        recentOpened.clear();
+        recentEvents.clear();
+        startDate.set(0);
+        decisions.set(0);
+        generation.incrementAndGet();
+        onChanged(true);
+    }
+
+    public void storeRated()
+    {
+        addDecision(DECISION_RATED);
+        generation.incrementAndGet();
+        onChanged(true);
+    }
+
+    public void storeToRateLater()
+    {
+        // Reset count starts and first start date
+        countOpened.set(0);
+        countEvents.set(0);
+        eventCounts.clear();
+        // Reset the day to restart comparing the days gone by
+        startDate.set(currentTimeMillis());
+        generation.incrementAndGet();
+        onChanged(false);
+    }
+
+    public void storeRatingDeclined()
+    {
+        // Clean up the counters
+        countOpened.set(0);
+        countEvents.set(0);
+        eventCounts.clearAll();
+        recentOpened.clear();
+        recentEvents.clear();
+        startDate.set(0);
+
+        // Store to never ask for rating again
+        addDecision(DECISION_DECLINED);
+        generation.incrementAndGet();
+        onChanged(true);
+    }
+
+    public void flush()
+    {
+        // Nothing to write
+    }
+
+    public void flushInBackground()
+    {
+        // Nothing to write
+    }
+
+    /**
+     * Replace the complete state, e.g. with the values loaded from the storage.
+     * The counts of the event types and the recent counts are reset, set them afterwards via 
+     * {@link #setCountEvents(int, int)}, {@link #setLastEventTime(int, long)} and the buckets of {@link #getRecentOpened()} and {@link #getRecentEvents()}.
+     * Doesn't count as a change.
+     * 
+     * @param startDate
+     * @param countOpened
+     * @param countEvents
+     * @param rated
+     * @param declined
+     */
+    protected void setState(long startDate, int countOpened, int countEvents, boolean rated, boolean declined)
+    {
+        this.startDate.set(startDate);
+        this.countOpened.set(countOpened);
+        this.countEvents.set(countEvents);
+        this.eventCounts.clearAll();
+        this.recentOpened.clear();
+        this.recentEvents.clear();
+        this.decisions.set((rated ? DECISION_RATED : 0) | (declined ? DECISION_DECLINED : 0));
+        this.generation.incrementAndGet();
+    }
+
+    /**
+     * Set the count of an event type, e.g. with the value loaded from the storage.
+     * Doesn't count as a change.
+     * 
+     * @param eventId
+     * @param count
+     */
+    protected void setCountEvents(int eventId, int count)
+    {
+        eventCounts.set(eventId, count);
+    }
+
+    /**
+     * Set the time of the last event of a type, e.g. with the value loaded from the storage.
+     * Doesn't count as a change.
+     * 
+     * @param eventId
+     * @param time The time in millis. Ignored in case it is older than the known time.
+     */
+    protected void setLastEventTime(int eventId, long time)
+    {
+        eventCounts.setTime(eventId, time);
+    }
+
+    /**
+     * Copy the counts and the times of the last events of all event types that have any of them, e.g. to store them.
+     * 
+     * @param eventIds Array of at least {@link #MAX_EVENT_TYPES} elements to copy the event types to.
+     * @param counts Array of at least {@link #MAX_EVENT_TYPES} elements to copy the counts to.
+     * @param times Array of at least {@link #MAX_EVENT_TYPES} elements to copy the times to.
+     * @return The amount of copied event types.
+     */
+    protected int copyCountEvents(int[] eventIds, int[] counts, long[] times)
+    {
+        return eventCounts.copyTo(eventIds, counts, times);
+    }
+
+    /**
+     * Get the hourly counts of the launches of the last week, e.g. to store them.
+     * 
+     * @return The buckets of the launches.
+     */
+    protected AppRaterTimeBuckets getRecentOpened()
+    {
+        return recentOpened;
+    }
+
+    /**
+     * Get the hourly counts of the positive events of the last week, e.g. to store them.
+     * 
+     * @return The buckets of the events.
+     */
+    protected AppRaterTimeBuckets getRecentEvents()
+    {
+        return recentEvents;
+    }
+
+    /**
+     * Get the start date without initializing it.
+     * 
+     * @return The start date or 0 if not set.
+     */
+    protected long getStartDate()
+    {
+        return startDate.get();
+    }
+
+    protected boolean isRated()
+    {
+        return (decisions.get() & DECISION_RATED) != 0;
+    }
+
+    protected boolean isDeclined()
+    {
+        return isRatingRequestDeclined();
+    }
+
+    private void addDecision(int decision)
+    {
+        int current;
+        do
+        {
+            current = decisions.get();
+        }
+        while (!decisions.compareAndSet(current, current | decision));
+    }
+
+    /**
+     * Get the current time used for the start date and the recent counts.
+     * Overwrite to run the store on a simulated clock.
+     * 
+     * @return The time in millis.
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Get the background thread shared by all persisting stores to write their pending changes.
+     * 
+     * @return The executor, created on the first call.
+     */
+    protected static synchronized ScheduledExecutorService getFlushExecutor()
+    {
+        if (flushExecutor == null)
+        {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "AppRater-Flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return flushExecutor;
+    }
+
+    /**
+     * Called after each change of the state. Subclasses persist the state here.
+     * 
+     * @param durable Flag if the change is a decision of the user, that has to be stored before returning.
+     */
+    protected void onChanged(boolean durable)
+    {
+        // Nothing to store in memory only mode
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.io.PrintWriter;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Opt-in metrics of the app rater: latency histograms of the hot path and counters of the dialog outcomes.
+ * Turned off by default. When turned off, recording costs a single volatile read.
+ * Recording never allocates, all values are kept in preallocated atomic arrays.
+ * 
+ * Usage:
+ * <pre>
+ * AppRaterMetrics.setEnabled(true);
+ * ...
+ * AppRaterMetrics.snapshot().dump(writer);
+ * </pre>
+ * 
+ * The histograms use buckets of powers of two nanoseconds, so percentiles are approximations
+ * with the upper bound of the bucket.
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterMetrics
+{
+    /** Timer of checkToShowRatingOnStart() */
+    public static final int       TIMER_CHECK_ON_START     = 0;
+    /** Timer of checkToShowRatingOnEvent() */
+    public static final int       TIMER_CHECK_ON_EVENT     = 1;
+    /** Timer of reading the configuration from the meta data. */
+    public static final int       TIMER_CONFIG_LOOKUP      = 2;
+    /** Timer of loading the stored state. */
+    public static final int       TIMER_STORAGE_READ       = 3;
+    /** Timer of writing the stored state. */
+    public static final int       TIMER_STORAGE_COMMIT     = 4;
+    /** Timer of preparing the rating dialog till it is shown. */
+    public static final int       TIMER_DIALOG_PREPARATION = 5;
+    /** Amount of timers. */
+    public static final int       TIMER_COUNT              = 6;
+
+    /** Counter of shown dialogs. */
+    public static final int       COUNTER_DIALOG_SHOWN     = 0;
+    /** Counter of the answer to rate now. */
+    public static final int       COUNTER_RATE             = 1;
+    /** Counter of the answer to remind later. */
+    public static final int       COUNTER_REMIND_LATER     = 2;
+    /** Counter of the answer to never rate. */
+    public static final int       COUNTER_NEVER            = 3;
+    /** Amount of counters. */
+    public static final int       COUNTER_COUNT            = 4;
+
+    /** Amount of histogram buckets per timer. Bucket i holds durations below 2^(i+1) ns, the last one all longer durations. */
+    public static final int       BUCKET_COUNT             = 36;
+
+    private static final String[] TIMER_NAMES              = {
+            "checkToShowRatingOnStart", "checkToShowRatingOnEvent", "configLookup", "storageRead", "storageCommit", "dialogPreparation" };
+    private static final String[] COUNTER_NAMES            = {
+            "dialogShown", "rate", "remindLater", "never" };
+
+    private static volatile boolean enabled;
+
+    private static final AtomicLongArray buckets    = new AtomicLongArray(TIMER_COUNT * BUCKET_COUNT);
+    private static final AtomicLongArray counts     = new AtomicLongArray(TIMER_COUNT);
+    private static final AtomicLongArray totalNanos = new AtomicLongArray(TIMER_COUNT);
+    private static final AtomicLongArray maxNanos   = new AtomicLongArray(TIMER_COUNT);
+    private static final AtomicLongArray counters   = new AtomicLongArray(COUNTER_COUNT);
+
+    private AppRaterMetrics()
+    {
+    }
+
+    /**
+     * Turn the recording on or off. Already recorded values are kept.
+     * 
+     * @param enabled
+     */
+    public static void setEnabled(boolean enabled)
+    {
+        AppRaterMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start a measurement.
+     * 
+     * @return The start time to pass to {@link #stop(int, long)} or 0 in case the metrics are turned off.
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stop a measurement and record its duration.
+     * 
+     * @param timer One of the TIMER_* constants.
+     * @param startNanos The value returned by {@link #start()}.
+     */
+    public static void stop(int timer, long startNanos)
+    {
+        if (startNanos != 0)
+        {
+            record(timer, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Record a duration.
+     * 
+     * @param timer One of the TIMER_* constants.
+     * @param nanos The duration in nanos.
+     */
+    public static void record(int timer, long nanos)
+    {
+        if (nanos < 0)
+        {
+            nanos = 0;
+        }
+
+        buckets.incrementAndGet(timer * BUCKET_COUNT + getBucket(nanos));
+        counts.incrementAndGet(timer);
+        totalNanos.addAndGet(timer, nanos);
+
+        long max;
+        do
+        {
+            max = maxNanos.get(timer);
+        }
+        while (nanos > max && !maxNanos.compareAndSet(timer, max, nanos));
+    }
+
+    /**
+     * Increase a counter in case the metrics are turned on.
+     * 
+     * @param counter One of the COUNTER_* constants.
+     */
+    public static void increment(int counter)
+    {
+        if (enabled)
+        {
+            counters.incrementAndGet(counter);
+        }
+    }
+
+    /**
+     * Clear all recorded values.
+     */
+    public static void reset()
+    {
+        for (int index = 0; index < buckets.length(); index++)
+        {
+            buckets.set(index, 0);
+        }
+        for (int timer = 0; timer < TIMER_COUNT; timer++)
+        {
+            counts.set(timer, 0);
+            totalNanos.set(timer, 0);
+            maxNanos.set(timer, 0);
+        }
+        for (int counter = 0; counter < COUNTER_COUNT; counter++)
+        {
+            counters.set(counter, 0);
+        }
+    }
+
+    /**
+     * Take a copy of all recorded values.
+     * 
+     * @return The snapshot.
+     */
+    public static Snapshot snapshot()
+    {
+        return new Snapshot();
+    }
+
+    /**
+     * Write all recorded values in a human readable form.
+     * 
+     * @param writer
+     */
+    public static void dump(PrintWriter writer)
+    {
+        snapshot().dump(writer);
+    }
+
+    public static String getTimerName(int timer)
+    {
+        return TIMER_NAMES[timer];
+    }
+
+    public static String getCounterName(int counter)
+    {
+        return COUNTER_NAMES[counter];
+    }
+
+    /**
+     * Get the bucket of the given duration.
+     * 
+     * @param nanos
+     * @return The index of the bucket.
+     */
+    private static int getBucket(long nanos)
+    {
+        int bucket = 63 - Long.numberOfLeadingZeros(nanos | 1);
+        return bucket < BUCKET_COUNT ? bucket : BUCKET_COUNT - 1;
+    }
+
+    /**
+     * Copy of the recorded values at one point in time.
+     */
+    public static final class Snapshot
+    {
+        private final long[] buckets    = new long[TIMER_COUNT * BUCKET_COUNT];
+        private final long[] counts     = new long[TIMER_COUNT];
+        private final long[] totalNanos = new long[TIMER_COUNT];
+        private final long[] maxNanos   = new long[TIMER_COUNT];
+        private final long[] counters   = new long[COUNTER_COUNT];
+
+        private Snapshot()
+        {
+            for (int index = 0; index < buckets.length; index++)
+            {
+                buckets[index] = AppRaterMetrics.buckets.get(index);
+            }
+            for (int timer = 0; timer < TIMER_COUNT; timer++)
+            {
+                counts[timer] = AppRaterMetrics.counts.get(timer);
+                totalNanos[timer] = AppRaterMetrics.totalNanos.get(timer);
+                maxNanos[timer] = AppRaterMetrics.maxNanos.get(timer);
+            }
+            for (int counter = 0; counter < COUNTER_COUNT; counter++)
+            {
+                counters[counter] = AppRaterMetrics.counters.get(counter);
+            }
+        }
+
+        /**
+         * Get the amount of measurements of the given timer.
+         * 
+         * @param timer One of the TIMER_* constants.
+         * @return The count.
+         */
+        public long getCount(int timer)
+        {
+            return counts[timer];
+        }
+
+        public long getTotalNanos(int timer)
+        {
+            return totalNanos[timer];
+        }
+
+        public long getMaxNanos(int timer)
+        {
+            return maxNanos[timer];
+        }
+
+        public long getMeanNanos(int timer)
+        {
+            return counts[timer] == 0 ? 0 : totalNanos[timer] / counts[timer];
+        }
+
+        /**
+         * Get the approximated percentile of the given timer.
+         * 
+         * @param timer One of the TIMER_* constants.
+         * @param percentile The percentile between 0 and 100.
+         * @return The upper bound in nanos of the bucket the percentile is in.
+         */
+        public long getPercentileNanos(int timer, double percentile)
+        {
+            long total = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+            {
+                total += buckets[timer * BUCKET_COUNT + bucket];
+            }
+            if (total == 0)
+            {
+                return 0;
+            }
+
+            long threshold = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+            {
+                seen += buckets[timer * BUCKET_COUNT + bucket];
+                if (seen >= threshold)
+                {
+                    return Math.min(1L << (bucket + 1), maxNanos[timer]);
+                }
+            }
+            return maxNanos[timer];
+        }
+
+        /**
+         * Get the amount of measurements of the given timer in the given bucket.
+         * 
+         * @param timer One of the TIMER_* constants.
+         * @param bucket The bucket between 0 and BUCKET_COUNT - 1.
+         * @return The count.
+         */
+        public long getBucketCount(int timer, int bucket)
+        {
+            return buckets[timer * BUCKET_COUNT + bucket];
+        }
+
+        /**
+         * Get the value of the given counter.
+         * 
+         * @param counter One of the COUNTER_* constants.
+         * @return The value.
+         */
+        public long getCounter(int counter)
+        {
+            return counters[counter];
+        }
+
+        /**
+         * Write the values in a human readable form.
+         * 
+         * @param writer
+         */
+        public void dump(PrintWriter writer)
+        {
+            writer.println("AppRater metrics (times in microseconds):");
+            for (int timer = 0; timer < TIMER_COUNT; timer++)
+            {
+                writer.println("  " + TIMER_NAMES[timer] + ": count=" + counts[timer] 
+                        + " mean=" + toMicros(getMeanNanos(timer)) 
+                        + " p50=" + toMicros(getPercentileNanos(timer, 50)) 
+                        + " p90=" + toMicros(getPercentileNanos(timer, 90)) 
+                        + " p99=" + toMicros(getPercentileNanos(timer, 99)) 
+                        + " max=" + toMicros(maxNanos[timer]));
+            }
+            for (int counter = 0; counter < COUNTER_COUNT; counter++)
+            {
+                writer.println("  " + COUNTER_NAMES[counter] + ": " + counters[counter]);
+            }
+            writer.flush();
+        }
+
+        private static String toMicros(long nanos)
+        {
+            return String.valueOf(nanos / 1000) + "." + String.valueOf(nanos % 1000 / 100);
+        }
+    }
+}
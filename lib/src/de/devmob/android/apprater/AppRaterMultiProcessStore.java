@@ -0,0 +1,627 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Store that shares the app rater state between several processes of the app via a binary file 
+ * (see {@link AppRaterStateFile}) guarded by a file lock.
+ * 
+ * Counter changes are applied in memory and kept as deltas of this process. The deltas are merged with
+ * the counts of the other processes under the file lock at most once per merge interval, on
+ * {@link #flush()} and on each decision of the user. A change that isn't merged directly schedules a merge 
+ * on the shared flush thread after the merge interval. So an increment is not a cross-process round trip,
+ * but the changes of the last merge interval (one minute by default) are lost in case the process is killed
+ * before. Call {@link #flush()} to write them directly. Counts of the other processes become visible with the next merge.
+ * 
+ * Resetting the counters (reset, remind later, decline) increases the epoch stored in the file, so deltas
+ * of other processes that were counted before the reset are dropped on their next merge instead of being
+ * added to the new schedule. The decisions of the user are written immediately.
+ * 
+ * Use a single instance per file and process. Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterMultiProcessStore extends AppRaterMemoryStore
+{
+    /** Default time in millis between merges of the counter changes triggered by the changes themselves. */
+    public static final long            DEFAULT_MERGE_INTERVAL_MILLIS = 60 * 1000;
+
+    private final AppRaterStateFile     stateFile;
+    private final long                  mergeIntervalMillis;
+
+    /** Changes of the counters share the read lock, merges and decisions take the write lock. */
+    private final ReentrantReadWriteLock changeLock      = new ReentrantReadWriteLock();
+
+    /** The counter changes of this process since the last merge. */
+    private final AtomicInteger         pendingOpened   = new AtomicInteger();
+    private final AtomicInteger         pendingEvents   = new AtomicInteger();
+    private final AppRaterEventCounts   pendingEventCounts  = new AppRaterEventCounts();
+    private final AppRaterTimeBuckets   pendingRecentOpened = new AppRaterTimeBuckets();
+    private final AppRaterTimeBuckets   pendingRecentEvents = new AppRaterTimeBuckets();
+
+    /** The epoch of the counters of the last merge, guarded by the write lock. */
+    private int                         epoch;
+    private volatile long               lastMergeMillis;
+    private final AtomicBoolean         flushScheduled  = new AtomicBoolean();
+    private final AtomicBoolean         mergeScheduled  = new AtomicBoolean();
+    /** Flag if a valid state was found in the file under the file lock. */
+    private volatile boolean            stateStored;
+
+    private final Runnable              flushTask       = new Runnable()
+    {
+        public void run()
+        {
+            flushScheduled.set(false);
+            flush();
+        }
+    };
+
+    private final Runnable              mergeTask       = new Runnable()
+    {
+        public void run()
+        {
+            // Changes after this point schedule their own merge
+            mergeScheduled.set(false);
+            changeLock.writeLock().lock();
+            try
+            {
+                mergeAndWrite(true, false);
+            }
+            finally
+            {
+                changeLock.writeLock().unlock();
+            }
+        }
+    };
+
+    /** Reused arrays to merge and write the counts of the event types, guarded by the write lock. */
+    private final int[]                 eventIds        = new int[MAX_EVENT_TYPES];
+    private final int[]                 eventCounts     = new int[MAX_EVENT_TYPES];
+    private final long[]                eventTimes      = new long[MAX_EVENT_TYPES];
+
+    /**
+     * Create the store with the default merge interval and load the state stored in the given file.
+     * 
+     * @param file The file to share. Created on the first change.
+     */
+    public AppRaterMultiProcessStore(File file)
+    {
+        this(file, DEFAULT_MERGE_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Create the store and load the state stored in the given file.
+     * 
+     * @param file The file to share. Created on the first change.
+     * @param mergeIntervalMillis The minimum time between merges triggered by counter changes. 
+     *        0 to merge on each change.
+     */
+    public AppRaterMultiProcessStore(File file, long mergeIntervalMillis)
+    {
+        this.stateFile = new AppRaterStateFile(file, false);
+        this.mergeIntervalMillis = mergeIntervalMillis;
+
+        long startNanos = AppRaterMetrics.start();
+        if (stateFile.exists())
+        {
+            changeLock.writeLock().lock();
+            try
+            {
+                FileLock lock = lockFile(true);
+                try
+                {
+                    merge();
+                }
+                finally
+                {
+                    release(lock);
+                }
+            }
+            finally
+            {
+                changeLock.writeLock().unlock();
+            }
+        }
+        lastMergeMillis = System.currentTimeMillis();
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_READ, startNanos);
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#increaseCountOpened()
+     */
+    @Override
+    public int increaseCountOpened()
+    {
+        int count;
+        changeLock.readLock().lock();
+        try
+        {
+            count = super.increaseCountOpened();
+            pendingOpened.incrementAndGet();
+            pendingRecentOpened.add(currentTimeMillis(), 1);
+        }
+        finally
+        {
+            changeLock.readLock().unlock();
+        }
+
+        mergeIfDue();
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#increaseCountEvents()
+     */
+    @Override
+    public int increaseCountEvents()
+    {
+        return addCountEvents(1);
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#addCountEvents(int)
+     */
+    @Override
+    public int addCountEvents(int amount)
+    {
+        int count;
+        changeLock.readLock().lock();
+        try
+        {
+            count = super.addCountEvents(amount);
+            pendingEvents.addAndGet(amount);
+            pendingRecentEvents.add(currentTimeMillis(), amount);
+        }
+        finally
+        {
+            changeLock.readLock().unlock();
+        }
+
+        mergeIfDue();
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#increaseCountEvents(int, int)
+     */
+    @Override
+    public int increaseCountEvents(int eventId, int amount)
+    {
+        int count;
+        changeLock.readLock().lock();
+        try
+        {
+            count = super.increaseCountEvents(eventId, amount);
+            if (count >= 0)
+            {
+                pendingEventCounts.add(eventId, amount, getLastEventTime(eventId));
+            }
+        }
+        finally
+        {
+            changeLock.readLock().unlock();
+        }
+
+        mergeIfDue();
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#reset()
+     */
+    @Override
+    public void reset()
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            FileLock lock = lockFile(true);
+            try
+            {
+                merge();
+                super.reset();
+                epoch++;
+                write(true);
+            }
+            finally
+            {
+                release(lock);
+            }
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeRated()
+     */
+    @Override
+    public void storeRated()
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            FileLock lock = lockFile(true);
+            try
+            {
+                merge();
+                super.storeRated();
+                write(true);
+            }
+            finally
+            {
+                release(lock);
+            }
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeToRateLater()
+     */
+    @Override
+    public void storeToRateLater()
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            FileLock lock = lockFile(true);
+            try
+            {
+                merge();
+                super.storeToRateLater();
+                epoch++;
+                write(false);
+            }
+            finally
+            {
+                release(lock);
+            }
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeRatingDeclined()
+     */
+    @Override
+    public void storeRatingDeclined()
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            FileLock lock = lockFile(true);
+            try
+            {
+                merge();
+                super.storeRatingDeclined();
+                epoch++;
+                write(true);
+            }
+            finally
+            {
+                release(lock);
+            }
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Check if a valid state was stored in the file when it was last read under the file lock.
+     * No need to import a state in that case, see {@link #importState(AppRaterMemoryStore)}.
+     * 
+     * @return Flag if a state is stored.
+     */
+    public boolean hasStoredState()
+    {
+        return stateStored;
+    }
+
+    /**
+     * Take over the state of the given store in case no process stored a state yet,
+     * e.g. to migrate the values of the preferences once. Decided under the file lock, so only
+     * one process imports. Otherwise the state stored by the other process is loaded.
+     * 
+     * @param source
+     * @return Flag if the state was imported, so the source can be cleared.
+     */
+    public boolean importState(AppRaterMemoryStore source)
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            FileLock lock = lockFile(true);
+            try
+            {
+                if (!stateFile.read())
+                {
+                    setState(source.getStartDate(), source.getCountOpened(), source.getCountEvents(), source.isRated(), source.isDeclined());
+                    int eventTypeCount = source.copyCountEvents(eventIds, eventCounts, eventTimes);
+                    for (int index = 0; index < eventTypeCount; index++)
+                    {
+                        setCountEvents(eventIds[index], eventCounts[index]);
+                        setLastEventTime(eventIds[index], eventTimes[index]);
+                    }
+                    source.getRecentOpened().addTo(getRecentOpened());
+                    source.getRecentEvents().addTo(getRecentEvents());
+                    write(true);
+
+                    // Only report the import once the written state can be read back
+                    stateStored = stateFile.read();
+                    return stateStored;
+                }
+
+                merge();
+                return false;
+            }
+            finally
+            {
+                release(lock);
+            }
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Take over the state stored in the given binary file of a store of a single process (see {@link AppRaterFileStore})
+     * in case no process stored a state yet, e.g. after switching from STORAGE_BINARY. The given file is deleted 
+     * once a state is stored in the shared file, by this or another process.
+     * 
+     * @param legacyFile
+     * @return Flag if the state of the given file was imported. False in case the file can't be read.
+     */
+    public boolean importState(File legacyFile)
+    {
+        AppRaterStateFile legacy = new AppRaterStateFile(legacyFile, false);
+        if (!legacy.exists() || !legacy.read())
+        {
+            legacy.close();
+            return false;
+        }
+
+        AppRaterMemoryStore source = new AppRaterMemoryStore();
+        source.setState(legacy.getStartDate(), legacy.getCountOpened(), legacy.getCountEvents(), legacy.isRated(), legacy.isDeclined());
+        for (int index = 0; index < legacy.getEventTypeCount(); index++)
+        {
+            source.setCountEvents(legacy.getEventId(index), legacy.getEventCount(index));
+            source.setLastEventTime(legacy.getEventId(index), legacy.getEventTime(index));
+        }
+        legacy.copyRecentOpenedTo(source.getRecentOpened());
+        legacy.copyRecentEventsTo(source.getRecentEvents());
+
+        boolean imported = importState(source);
+        if (imported || stateStored)
+        {
+            // Another process may have imported the same file already
+            legacy.delete();
+        }
+        else
+        {
+            legacy.close();
+        }
+        return imported;
+    }
+
+    /**
+     * Merge the changes of this process with the ones of the other processes and write the result.
+     * Blocks till the other processes released the file.
+     */
+    @Override
+    public void flush()
+    {
+        changeLock.writeLock().lock();
+        try
+        {
+            mergeAndWrite(true, true);
+        }
+        finally
+        {
+            changeLock.writeLock().unlock();
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#flushInBackground()
+     */
+    @Override
+    public void flushInBackground()
+    {
+        if (flushScheduled.compareAndSet(false, true))
+        {
+            getFlushExecutor().execute(flushTask);
+        }
+    }
+
+    /**
+     * Merge the changes in case the merge interval passed. Skipped in case another thread or process
+     * is currently merging. Otherwise a merge is scheduled after the merge interval, unless one is scheduled already.
+     */
+    private void mergeIfDue()
+    {
+        boolean merged = false;
+        if (System.currentTimeMillis() - lastMergeMillis >= mergeIntervalMillis && changeLock.writeLock().tryLock())
+        {
+            try
+            {
+                merged = mergeAndWrite(false, false);
+            }
+            finally
+            {
+                changeLock.writeLock().unlock();
+            }
+        }
+
+        if (!merged && mergeScheduled.compareAndSet(false, true))
+        {
+            getFlushExecutor().schedule(mergeTask, mergeIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Lock the file, merge the changes and write the result. The caller holds the write lock.
+     * 
+     * @param wait Flag to wait for other processes holding the file lock.
+     * @param sync Flag if the write has to reach the storage device before returning.
+     * @return Flag if merged, false in case another process holds the file lock and not waited for it.
+     */
+    private boolean mergeAndWrite(boolean wait, boolean sync)
+    {
+        FileLock lock = lockFile(wait);
+        if (lock == null && !wait)
+        {
+            return false;
+        }
+
+        try
+        {
+            merge();
+            write(sync);
+            return true;
+        }
+        finally
+        {
+            release(lock);
+        }
+    }
+
+    /**
+     * Replace the state in memory with the stored state plus the pending changes of this process.
+     * The pending changes of the counters are dropped in case another process reset the counters 
+     * since the last merge. The caller holds the write lock and the file lock.
+     */
+    private void merge()
+    {
+        if (stateFile.read())
+        {
+            stateStored = true;
+            boolean sameEpoch = stateFile.getEpoch() == epoch;
+            long startDate = stateFile.getStartDate();
+            if (startDate == 0 && sameEpoch)
+            {
+                // Keep the start date initialized by this process
+                startDate = getStartDate();
+            }
+
+            int countOpened = stateFile.getCountOpened() + (sameEpoch ? pendingOpened.get() : 0);
+            int countEvents = stateFile.getCountEvents() + (sameEpoch ? pendingEvents.get() : 0);
+            setState(startDate, countOpened, countEvents, stateFile.isRated(), stateFile.isDeclined());
+
+            for (int index = 0; index < stateFile.getEventTypeCount(); index++)
+            {
+                setCountEvents(stateFile.getEventId(index), stateFile.getEventCount(index));
+                setLastEventTime(stateFile.getEventId(index), stateFile.getEventTime(index));
+            }
+            int eventTypeCount = pendingEventCounts.copyTo(eventIds, eventCounts, eventTimes);
+            for (int index = 0; index < eventTypeCount; index++)
+            {
+                if (sameEpoch)
+                {
+                    setCountEvents(eventIds[index], getCountEvents(eventIds[index]) + eventCounts[index]);
+                }
+                // The times of the last events are not reset with the counters
+                setLastEventTime(eventIds[index], eventTimes[index]);
+            }
+
+            // The recent counts are not reset with the counters, so they are always merged
+            stateFile.copyRecentOpenedTo(getRecentOpened());
+            pendingRecentOpened.addTo(getRecentOpened());
+            stateFile.copyRecentEventsTo(getRecentEvents());
+            pendingRecentEvents.addTo(getRecentEvents());
+
+            epoch = stateFile.getEpoch();
+        }
+
+        pendingOpened.set(0);
+        pendingEvents.set(0);
+        pendingEventCounts.clearAll();
+        pendingRecentOpened.clear();
+        pendingRecentEvents.clear();
+        lastMergeMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Write the state in memory. The caller holds the write lock and the file lock.
+     * 
+     * @param sync Flag if the write has to reach the storage device before returning.
+     */
+    private void write(boolean sync)
+    {
+        long startNanos = AppRaterMetrics.start();
+        int eventTypeCount = copyCountEvents(eventIds, eventCounts, eventTimes);
+        stateFile.write(getStartDate(), getCountOpened(), getCountEvents(), isRated(), isDeclined(), eventIds, eventCounts, eventTimes, eventTypeCount, 
+                        getRecentOpened(), getRecentEvents(), epoch, sync);
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_COMMIT, startNanos);
+    }
+
+    /**
+     * Lock the file against the other processes.
+     * 
+     * @param wait Flag to wait till the lock is available.
+     * @return The lock or null in case it is held by another process or the file can't be locked.
+     */
+    private FileLock lockFile(boolean wait)
+    {
+        try
+        {
+            return stateFile.lock(wait);
+        }
+        catch (IOException e)
+        {
+            // Continue without the lock, the state of this process is kept
+            return null;
+        }
+    }
+
+    private static void release(FileLock lock)
+    {
+        if (lock != null)
+        {
+            try
+            {
+                lock.release();
+            }
+            catch (IOException e)
+            {
+                // Ignore, the lock is released when the file is closed
+            }
+        }
+    }
+}
@@ -18,10 +18,15 @@
  */
 package de.devmob.android.apprater;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import android.app.Activity;
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.util.Log;
 
 /**
  * Class to handle the apprater specific preferences.
@@ -29,9 +34,24 @@ import android.util.Log;
  * Inspired Arash Payan http://arashpayan.com/blog/2009/09/07/presenting-appirater 
  * and Jos Moura with https://github.com/zemariamm/Appirater-for-Android
  * 
+ * The stored values are loaded once into memory. In write-behind mode counter increments and
+ * state transitions are only kept in memory and written in coalesced batches: after a short delay,
+ * after a number of pending changes or on an explicit {@link #flush()}. Terminal decisions
+ * (rated, declined, reset) are always written immediately. Each commit to the shared preferences
+ * only writes the keys that changed since the last one.
+ * 
+ * The state is stored either in the xml based shared preferences or in a compact binary file
+ * (see {@link AppRaterStateFile}). When switching to the binary file, existing values of the
+ * shared preferences are migrated once.
+ * 
+ * Use {@link #getInstance(Context)} to get the instance shared by the whole process. It is backed by the
+ * application context and never keeps a reference to an activity.
+ * 
+ * All methods are thread safe, see {@link AppRaterMemoryStore}.
+ * 
  * @author Friederike Wild
  */
-public class AppRaterPreferences
+public class AppRaterPreferences extends AppRaterMemoryStore
 {
     /** The key to the shared preferences that handles storage of the app rater status quo. */
     private static final String KEY_PREFERENCES       = "de.devmob.APPRATER";
@@ -46,203 +66,712 @@ public class AppRaterPreferences
     private static final String PREF_BOOL_RATED       = "PREF_BOOL_RATED";
     /** Key to store if app rating was declined */
     private static final String PREF_BOOL_DECLINED    = "PREF_BOOL_DECLINED";
+    /** Key to store the counts and last times of all event types in one record: "type:count:time,type:count:time" */
+    private static final String PREF_STRING_EVENTS    = "PREF_STRING_EVENTS";
+    /** Key to store the hourly counts of the recent launches in one record: "hour:bucket=count,bucket=count" */
+    private static final String PREF_STRING_RECENT_OPEN   = "PREF_STRING_RECENT_OPEN";
+    /** Key to store the hourly counts of the recent events in one record: "hour:bucket=count,bucket=count" */
+    private static final String PREF_STRING_RECENT_EVENTS = "PREF_STRING_RECENT_EVENTS";
+
+    /** Name of the binary state file inside the apps files directory. */
+    private static final String STATE_FILE_NAME       = "de.devmob.APPRATER.bin";
+
+    /** Delay in millis after the first pending change till all pending changes are written in write-behind mode. */
+    private static final long   FLUSH_DELAY_MILLIS    = 5000;
+    /** Amount of pending changes that triggers writing them without waiting for the delay in write-behind mode. */
+    private static final int    FLUSH_THRESHOLD       = 10;
+
+    /** The instance shared by the whole process. Created on first usage. */
+    private static volatile AppRaterPreferences sharedInstance;
 
     private SharedPreferences preferences;
-    private boolean verbose;
+    /** The binary state file. Null in case the shared preferences are used. */
+    private AppRaterStateFile stateFile;
+    private boolean writeBehind;
+
+    /** Lock to keep the order of snapshots and writes of concurrent flushes. */
+    private final Object flushLock = new Object();
+    /** Reused arrays to write the counts of the event types, guarded by the flush lock. */
+    private final int[]  flushEventIds    = new int[MAX_EVENT_TYPES];
+    private final int[]  flushEventCounts = new int[MAX_EVENT_TYPES];
+    private final long[] flushEventTimes  = new long[MAX_EVENT_TYPES];
+    /** Reused array to write the recent counts, guarded by the flush lock. */
+    private final int[]  flushBuckets     = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+
+    /** The values last committed to the shared preferences, guarded by the flush lock. Only the changed keys are written. */
+    private boolean      writtenKnown;
+    private long         writtenStartDate;
+    private int          writtenCountOpened;
+    private int          writtenCountEvents;
+    private boolean      writtenRated;
+    private boolean      writtenDeclined;
+    private int          writtenEventTypeCount;
+    private final int[]  writtenEventIds      = new int[MAX_EVENT_TYPES];
+    private final int[]  writtenEventCounts   = new int[MAX_EVENT_TYPES];
+    private final long[] writtenEventTimes    = new long[MAX_EVENT_TYPES];
+    private long         writtenOpenedHour;
+    private final int[]  writtenRecentOpened  = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+    private long         writtenEventsHour;
+    private final int[]  writtenRecentEvents  = new int[AppRaterTimeBuckets.BUCKET_COUNT];
 
-    public AppRaterPreferences(Context context, boolean verbose)
+    /** Amount of changes not yet written. */
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Runnable flushTask = new Runnable()
+    {
+        public void run()
+        {
+            flush(false);
+        }
+    };
+
+    public AppRaterPreferences(Context context)
+    {
+        this(context, false, AppRaterConfig.STORAGE_PREFERENCES);
+    }
+
+    /**
+     * Create the preferences with the given storage.
+     * Logging follows the shared configuration, see {@link AppRater#getConfig(Context)}.
+     * 
+     * @param context
+     * @param writeBehind Flag if counter changes should be written in batches.
+     * @param storage One of the AppRaterConfig.STORAGE_* constants.
+     */
+    public AppRaterPreferences(Context context, boolean writeBehind, int storage)
     {
         // Get the shared preferences that hold the app rater usage status.
         int mode = Activity.MODE_PRIVATE;
         this.preferences = context.getSharedPreferences(KEY_PREFERENCES, mode);
-        this.verbose = verbose;
+        this.writeBehind = writeBehind;
+
+        if (storage == AppRaterConfig.STORAGE_BINARY || storage == AppRaterConfig.STORAGE_MAPPED)
+        {
+            this.stateFile = new AppRaterStateFile(getStateFile(context), storage == AppRaterConfig.STORAGE_MAPPED);
+        }
+
+        // Load the complete state once
+        long startNanos = AppRaterMetrics.start();
+        if (stateFile != null && stateFile.read())
+        {
+            setState(stateFile.getStartDate(), stateFile.getCountOpened(), stateFile.getCountEvents(), stateFile.isRated(), stateFile.isDeclined());
+            for (int index = 0; index < stateFile.getEventTypeCount(); index++)
+            {
+                setCountEvents(stateFile.getEventId(index), stateFile.getEventCount(index));
+                setLastEventTime(stateFile.getEventId(index), stateFile.getEventTime(index));
+            }
+            stateFile.copyRecentOpenedTo(getRecentOpened());
+            stateFile.copyRecentEventsTo(getRecentEvents());
+        }
+        else
+        {
+            SharedPreferences prefs = preferences;
+            setState(prefs.getLong(PREF_LONG_START_DATE, 0), 
+                     prefs.getInt(PREF_INT_COUNT_OPEN, 0), 
+                     prefs.getInt(PREF_INT_COUNT_EVENTS, 0), 
+                     prefs.getBoolean(PREF_BOOL_RATED, false), 
+                     prefs.getBoolean(PREF_BOOL_DECLINED, false));
+            readCountEvents(prefs.getString(PREF_STRING_EVENTS, null));
+            readRecentCounts(prefs.getString(PREF_STRING_RECENT_OPEN, null), getRecentOpened());
+            readRecentCounts(prefs.getString(PREF_STRING_RECENT_EVENTS, null), getRecentEvents());
+
+            // Never replace an existing file by the cleared preferences, e.g. in case it couldn't be read for now
+            if (stateFile != null && (!stateFile.exists() || !preferences.getAll().isEmpty()))
+            {
+                migrateToStateFile();
+            }
+        }
+        AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_READ, startNanos);
     }
 
     /**
-     * Check if rating was already done or denied. 
+     * Get the preferences instance shared by the whole process. Created on the first call
+     * with the application context of the given context and the shared configuration.
      * 
-     * @return
+     * @param context Any context of the application.
+     * @return The shared preferences instance.
      */
-    public boolean isRatingRequestDeactivated()
+    public static AppRaterPreferences getInstance(Context context)
     {
-        SharedPreferences prefs = preferences;
-        boolean userRated = prefs.getBoolean(PREF_BOOL_RATED, false);
-        boolean userChoseNeverRate = prefs.getBoolean(PREF_BOOL_DECLINED, false);
-        return userRated || userChoseNeverRate;
+        AppRaterPreferences instance = sharedInstance;
+        if (instance == null)
+        {
+            synchronized (AppRaterPreferences.class)
+            {
+                instance = sharedInstance;
+                if (instance == null)
+                {
+                    Context applicationContext = context.getApplicationContext();
+                    if (applicationContext == null)
+                    {
+                        applicationContext = context;
+                    }
+
+                    AppRaterConfig config = AppRater.getConfig(applicationContext);
+                    instance = new AppRaterPreferences(applicationContext, config.isWriteBehind(), config.getStorage());
+                    sharedInstance = instance;
+                }
+            }
+        }
+        return instance;
     }
 
     /**
-     * Check if rating was already denied. 
+     * Get the binary state file used with STORAGE_BINARY and STORAGE_MAPPED.
      * 
-     * @return
+     * @param context
+     * @return The file inside the apps files directory, may not exist.
      */
-    public boolean isRatingRequestDeclined()
+    static File getStateFile(Context context)
     {
-        SharedPreferences prefs = preferences;
-        boolean userChoseNeverRate = prefs.getBoolean(PREF_BOOL_DECLINED, false);
-        return userChoseNeverRate;
+        return new File(context.getFilesDir(), STATE_FILE_NAME);
     }
 
     /**
-     * Get the stored start date.
-     * This is the first date in millis the app was launched on,
-     * or the date the user decided to be asked later.
+     * Get the preferences instance shared by the whole process without creating it.
      * 
-     * @return The date in millis to compare current date with
+     * @return The shared preferences instance or null in case it wasn't created yet.
      */
-    public long getStoredStartDate()
+    public static AppRaterPreferences peekInstance()
     {
-        SharedPreferences prefs = preferences;
-        long storedDate = prefs.getLong(PREF_LONG_START_DATE, 0);
-        
-        if (storedDate == 0)
-        {
-            storedDate = System.currentTimeMillis();
-            SharedPreferences.Editor editor = preferences.edit();
-            editor.putLong(PREF_LONG_START_DATE, storedDate);
-            editor.commit();
+        return sharedInstance;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#increaseCountOpened()
+     */
+    @Override
+    public int increaseCountOpened()
+    {
+        int count = super.increaseCountOpened();
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Current count open: {}", count);
         }
 
-        return storedDate;
+        return count;
     }
 
-    /**
-     * Calling this method increases the count of times the app was opened.
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#increaseCountEvents()
+     */
+    @Override
+    public int increaseCountEvents()
+    {
+        int count = super.increaseCountEvents();
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Current count events: {}", count);
+        }
+
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#addCountEvents(int)
      */
-    public void increaseCountOpened()
+    @Override
+    public int addCountEvents(int amount)
     {
-        int count = getCountOpened();
+        int count = super.addCountEvents(amount);
 
-        // Increase the counter
-        count++;
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Current count events: {}", count);
+        }
 
-        // Store updated count
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putInt(PREF_INT_COUNT_OPEN, count);
-        editor.commit();
+        return count;
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#reset()
+     */
+    @Override
+    public void reset()
+    {
+        super.reset();
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Info: Reset all stored preferences!");
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeRated()
+     */
+    @Override
+    public void storeRated()
+    {
+        super.storeRated();
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Info: Marked as rated!");
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeToRateLater()
+     */
+    @Override
+    public void storeToRateLater()
+    {
+        super.storeToRateLater();
 
-        if (this.verbose)
+        if (AppRaterLog.isEnabled())
         {            
-            Log.i(AppRater.LOG_TAG, "Current count open: " + count);
+            AppRaterLog.log(AppRaterLog.INFO, "Info: Marked to ask later for rating!");
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see de.devmob.android.apprater.AppRaterMemoryStore#storeRatingDeclined()
+     */
+    @Override
+    public void storeRatingDeclined()
+    {
+        super.storeRatingDeclined();
+
+        if (AppRaterLog.isEnabled())
+        {            
+            AppRaterLog.log(AppRaterLog.INFO, "Info: Marked to never show rating dialog again!");
         }
     }
 
     /**
-     * Get the current count of opening the application.
-     * 
-     * @return The count of new app starts.
+     * Write all pending changes to the shared preferences.
+     * Blocks till the values are committed, so better not call this from the UI thread.
      */
-    public int getCountOpened()
+    @Override
+    public void flush()
     {
-        int count = preferences.getInt(PREF_INT_COUNT_OPEN, 0);
-        return count;
+        flush(true);
+    }
+
+    /**
+     * Write all pending changes on the background thread as soon as possible.
+     * To be used e.g. when the app is about to be paused.
+     */
+    @Override
+    public void flushInBackground()
+    {
+        if (pendingChanges.get() == 0)
+        {
+            return;
+        }
+        flushScheduled.set(true);
+        getFlushExecutor().execute(flushTask);
     }
 
     /**
-     * Calling this method increases the count of events.
+     * Write all pending changes.
+     * 
+     * @param sync Flag if the binary state file has to reach the storage device before returning.
+     *             The shared preferences are always committed synchronously.
      */
-    public void increaseCountEvents()
+    private void flush(boolean sync)
     {
-        int count = getCountEvents();
+        synchronized (flushLock)
+        {
+            // Changes after this point schedule their own flush
+            flushScheduled.set(false);
+            if (pendingChanges.getAndSet(0) == 0)
+            {
+                return;
+            }
 
-        // Increase the counter
-        count++;
+            long flushStartDate = getStartDate();
+            int flushCountOpened = getCountOpened();
+            int flushCountEvents = getCountEvents();
+            boolean flushRated = isRated();
+            boolean flushDeclined = isDeclined();
+            int flushEventTypeCount = copyCountEvents(flushEventIds, flushEventCounts, flushEventTimes);
 
-        // Store updated count
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putInt(PREF_INT_COUNT_EVENTS, count);
-        editor.commit();
+            long startNanos = AppRaterMetrics.start();
+            if (stateFile != null)
+            {
+                stateFile.write(flushStartDate, flushCountOpened, flushCountEvents, flushRated, flushDeclined, 
+                                flushEventIds, flushEventCounts, flushEventTimes, flushEventTypeCount, getRecentOpened(), getRecentEvents(), 0, sync);
+                AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_COMMIT, startNanos);
+                return;
+            }
 
-        if (this.verbose)
-        {            
-            Log.i(AppRater.LOG_TAG, "Current count events: " + count);
+            // Only write the keys that changed since the last commit, the first commit writes all of them
+            SharedPreferences.Editor editor = preferences.edit();
+            boolean changed = false;
+            if (!writtenKnown || flushStartDate != writtenStartDate)
+            {
+                putOrRemove(editor, PREF_LONG_START_DATE, flushStartDate);
+                changed = true;
+            }
+            if (!writtenKnown || flushCountOpened != writtenCountOpened)
+            {
+                putOrRemove(editor, PREF_INT_COUNT_OPEN, flushCountOpened);
+                changed = true;
+            }
+            if (!writtenKnown || flushCountEvents != writtenCountEvents)
+            {
+                putOrRemove(editor, PREF_INT_COUNT_EVENTS, flushCountEvents);
+                changed = true;
+            }
+            if (!writtenKnown || flushRated != writtenRated)
+            {
+                putOrRemove(editor, PREF_BOOL_RATED, flushRated);
+                changed = true;
+            }
+            if (!writtenKnown || flushDeclined != writtenDeclined)
+            {
+                putOrRemove(editor, PREF_BOOL_DECLINED, flushDeclined);
+                changed = true;
+            }
+            if (!writtenKnown || !isCountEventsWritten(flushEventTypeCount))
+            {
+                putOrRemove(editor, PREF_STRING_EVENTS, formatCountEvents(flushEventIds, flushEventCounts, flushEventTimes, flushEventTypeCount));
+                writtenEventTypeCount = flushEventTypeCount;
+                System.arraycopy(flushEventIds, 0, writtenEventIds, 0, flushEventTypeCount);
+                System.arraycopy(flushEventCounts, 0, writtenEventCounts, 0, flushEventTypeCount);
+                System.arraycopy(flushEventTimes, 0, writtenEventTimes, 0, flushEventTypeCount);
+                changed = true;
+            }
+            long openedHour = getRecentOpened().copyTo(flushBuckets);
+            if (!writtenKnown || openedHour != writtenOpenedHour || !Arrays.equals(flushBuckets, writtenRecentOpened))
+            {
+                putOrRemove(editor, PREF_STRING_RECENT_OPEN, formatRecentCounts(openedHour, flushBuckets));
+                writtenOpenedHour = openedHour;
+                System.arraycopy(flushBuckets, 0, writtenRecentOpened, 0, flushBuckets.length);
+                changed = true;
+            }
+            long eventsHour = getRecentEvents().copyTo(flushBuckets);
+            if (!writtenKnown || eventsHour != writtenEventsHour || !Arrays.equals(flushBuckets, writtenRecentEvents))
+            {
+                putOrRemove(editor, PREF_STRING_RECENT_EVENTS, formatRecentCounts(eventsHour, flushBuckets));
+                writtenEventsHour = eventsHour;
+                System.arraycopy(flushBuckets, 0, writtenRecentEvents, 0, flushBuckets.length);
+                changed = true;
+            }
+
+            if (changed)
+            {
+                // Write all keys again next time in case the commit failed
+                writtenKnown = editor.commit();
+                writtenStartDate = flushStartDate;
+                writtenCountOpened = flushCountOpened;
+                writtenCountEvents = flushCountEvents;
+                writtenRated = flushRated;
+                writtenDeclined = flushDeclined;
+            }
+            AppRaterMetrics.stop(AppRaterMetrics.TIMER_STORAGE_COMMIT, startNanos);
         }
     }
 
     /**
-     * Get the current count of positive events logged in the application.
+     * Check if the copied counts and times of the event types are the ones last committed. The caller holds the flush lock.
      * 
-     * @return The count of positive events.
+     * @param eventTypeCount The amount of copied event types.
+     * @return Flag if they are unchanged.
      */
-    public int getCountEvents()
+    private boolean isCountEventsWritten(int eventTypeCount)
     {
-        int count = preferences.getInt(PREF_INT_COUNT_EVENTS, 0);
-        return count;
+        if (eventTypeCount != writtenEventTypeCount)
+        {
+            return false;
+        }
+
+        for (int index = 0; index < eventTypeCount; index++)
+        {
+            if (flushEventIds[index] != writtenEventIds[index] || flushEventCounts[index] != writtenEventCounts[index] 
+                    || flushEventTimes[index] != writtenEventTimes[index])
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
-    protected void reset()
+    /**
+     * Remove the stored state from the shared preferences and the binary state file, e.g. after it was 
+     * taken over by another store. The state in memory is kept, pending changes are dropped.
+     */
+    void clearStorage()
     {
-        SharedPreferences.Editor editor = preferences.edit();
+        synchronized (flushLock)
+        {
+            pendingChanges.set(0);
+            writtenKnown = false;
 
-        // Remove all stored keys to clean up
-        editor.remove(PREF_INT_COUNT_OPEN);
-        editor.remove(PREF_INT_COUNT_EVENTS);
-        editor.remove(PREF_LONG_START_DATE);
-        editor.remove(PREF_BOOL_RATED);
-        editor.remove(PREF_BOOL_DECLINED);
-        editor.commit();
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.clear();
+            editor.commit();
+
+            if (stateFile != null)
+            {
+                stateFile.delete();
+            }
+        }
 
-        if (this.verbose)
+        if (AppRaterLog.isEnabled())
         {            
-            Log.i(AppRater.LOG_TAG, "Info: Reset all stored preferences!");
+            AppRaterLog.log(AppRaterLog.INFO, "Info: Cleared the stored preferences!");
         }
     }
 
     /**
-     * Store that user rated - don't ask until further notice
-     * e.g. about major version update.
+     * Move the values of the shared preferences to the binary state file.
+     * The shared preferences are only cleared once the written state was read back and matches,
+     * so they are still available in case writing the file fails or is interrupted.
      */
-    protected void storeRated()
+    private void migrateToStateFile()
     {
-        SharedPreferences.Editor editor = preferences.edit();
-        editor.putBoolean(PREF_BOOL_RATED, true);
-        editor.commit();
+        int[] eventIds = new int[MAX_EVENT_TYPES];
+        int[] eventCounts = new int[MAX_EVENT_TYPES];
+        long[] eventTimes = new long[MAX_EVENT_TYPES];
+        int eventTypeCount = copyCountEvents(eventIds, eventCounts, eventTimes);
+        boolean written = stateFile.write(getStartDate(), getCountOpened(), getCountEvents(), isRated(), isDeclined(), 
+                                          eventIds, eventCounts, eventTimes, eventTypeCount, getRecentOpened(), getRecentEvents(), 0, true);
 
-        if (this.verbose)
-        {            
-            Log.i(AppRater.LOG_TAG, "Info: Marked as rated!");
+        if (written && !preferences.getAll().isEmpty() && isStateFileVerified(eventIds, eventCounts, eventTypeCount))
+        {
+            SharedPreferences.Editor editor = preferences.edit();
+            editor.clear();
+            editor.commit();
+
+            if (AppRaterLog.isEnabled())
+            {            
+                AppRaterLog.log(AppRaterLog.INFO, "Info: Migrated stored preferences to binary state file!");
+            }
         }
     }
 
     /**
-     * Reset the app rating counter and settings to automatically ask for rating later again. 
+     * Read the state file back and compare it with the state in memory.
+     * 
+     * @param eventIds The written event types.
+     * @param eventCounts The written counts of the event types.
+     * @param eventTypeCount The amount of written event types.
+     * @return Flag if the file holds the state in memory.
      */
-    protected void storeToRateLater()
+    private boolean isStateFileVerified(int[] eventIds, int[] eventCounts, int eventTypeCount)
     {
-        SharedPreferences.Editor editor = preferences.edit();
-        // Reset count starts and first start date
-        editor.putInt(PREF_INT_COUNT_OPEN, 0);
-        editor.putInt(PREF_INT_COUNT_EVENTS, 0);
-        // Reset the day to restart comparing the days gone by
-        editor.putLong(PREF_LONG_START_DATE, System.currentTimeMillis());
+        if (!stateFile.read() || stateFile.getStartDate() != getStartDate() || stateFile.getCountOpened() != getCountOpened() 
+                || stateFile.getCountEvents() != getCountEvents() || stateFile.isRated() != isRated() 
+                || stateFile.isDeclined() != isDeclined() || stateFile.getEventTypeCount() != eventTypeCount)
+        {
+            return false;
+        }
 
-        editor.commit();
+        for (int index = 0; index < eventTypeCount; index++)
+        {
+            if (stateFile.getEventId(index) != eventIds[index] || stateFile.getEventCount(index) != eventCounts[index])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        if (this.verbose)
-        {            
-            Log.i(AppRater.LOG_TAG, "Info: Marked to ask later for rating!");
+    /**
+     * Handle a change of the in memory state. Without write-behind mode and for durable changes 
+     * the state is written directly, otherwise a delayed write is scheduled.
+     * 
+     * @param durable Flag if the change has to be written before returning.
+     */
+    @Override
+    protected void onChanged(boolean durable)
+    {
+        int pending = pendingChanges.incrementAndGet();
+
+        if (!writeBehind || durable)
+        {
+            // Only force the decisions of the user to the storage device
+            flush(durable);
+            return;
+        }
+
+        if (pending == FLUSH_THRESHOLD)
+        {
+            flushScheduled.set(true);
+            getFlushExecutor().execute(flushTask);
+        }
+        else if (flushScheduled.compareAndSet(false, true))
+        {
+            getFlushExecutor().schedule(flushTask, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        // Otherwise already waiting for the next write
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, long value)
+    {
+        if (value == 0)
+        {
+            editor.remove(key);
+        }
+        else
+        {
+            editor.putLong(key, value);
+        }
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, int value)
+    {
+        if (value == 0)
+        {
+            editor.remove(key);
+        }
+        else
+        {
+            editor.putInt(key, value);
+        }
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, String value)
+    {
+        if (value == null)
+        {
+            editor.remove(key);
+        }
+        else
+        {
+            editor.putString(key, value);
         }
     }
 
     /**
-     * Store to never ask for a rating again.
+     * Set the counts and last times of the event types from the stored record. 
+     * Records without the times are read as well.
+     * 
+     * @param record The record as created by {@link #formatCountEvents(int[], int[], long[], int)} or null.
      */
-    protected void storeRatingDeclined()
+    private void readCountEvents(String record)
     {
-        SharedPreferences.Editor editor = preferences.edit();
+        if (record == null)
+        {
+            return;
+        }
+
+        for (String entry : record.split(","))
+        {
+            String[] parts = entry.split(":");
+            try
+            {
+                int eventId = Integer.parseInt(parts[0]);
+                setCountEvents(eventId, Integer.parseInt(parts[1]));
+                if (parts.length > 2)
+                {
+                    setLastEventTime(eventId, Long.parseLong(parts[2]));
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // Skip the broken entry
+            }
+        }
+    }
 
-        // Remove all stored keys to clean up
-        editor.remove(PREF_INT_COUNT_OPEN);
-        editor.remove(PREF_INT_COUNT_EVENTS);
-        editor.remove(PREF_LONG_START_DATE);
+    /**
+     * Create the record of the counts and last times of the event types.
+     * 
+     * @param eventIds
+     * @param eventCounts
+     * @param eventTimes
+     * @param eventTypeCount
+     * @return The record or null in case there is nothing to store.
+     */
+    private static String formatCountEvents(int[] eventIds, int[] eventCounts, long[] eventTimes, int eventTypeCount)
+    {
+        if (eventTypeCount == 0)
+        {
+            return null;
+        }
 
-        // Store to never ask for rating again
-        editor.putBoolean(PREF_BOOL_DECLINED, true);
-        editor.commit();
+        StringBuilder record = new StringBuilder(eventTypeCount * 24);
+        for (int index = 0; index < eventTypeCount; index++)
+        {
+            if (index > 0)
+            {
+                record.append(',');
+            }
+            record.append(eventIds[index]).append(':').append(eventCounts[index]).append(':').append(eventTimes[index]);
+        }
+        return record.toString();
+    }
 
-        if (this.verbose)
-        {            
-            Log.i(AppRater.LOG_TAG, "Info: Marked to never show rating dialog again!");
+    /**
+     * Set the recent counts from the stored record.
+     * 
+     * @param record The record as created by {@link #formatRecentCounts(long, int[])} or null.
+     * @param buckets The buckets to set.
+     */
+    private static void readRecentCounts(String record, AppRaterTimeBuckets buckets)
+    {
+        if (record == null)
+        {
+            return;
+        }
+
+        try
+        {
+            int separator = record.indexOf(':');
+            long lastHour = Long.parseLong(record.substring(0, separator));
+            int[] counts = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+            for (String entry : record.substring(separator + 1).split(","))
+            {
+                int equals = entry.indexOf('=');
+                if (equals > 0)
+                {
+                    counts[Integer.parseInt(entry.substring(0, equals))] = Integer.parseInt(entry.substring(equals + 1));
+                }
+            }
+            buckets.set(lastHour, counts);
+        }
+        catch (RuntimeException e)
+        {
+            // Start with empty buckets
+        }
+    }
+
+    /**
+     * Create the record of the recent counts. Only buckets that are not 0 are written.
+     * 
+     * @param lastHour The hour of the newest bucket, see {@link AppRaterTimeBuckets#copyTo(int[])}.
+     * @param counts The copied counts of the buckets.
+     * @return The record or null in case there is nothing to store.
+     */
+    private static String formatRecentCounts(long lastHour, int[] counts)
+    {
+        StringBuilder record = null;
+        for (int index = 0; index < counts.length; index++)
+        {
+            if (counts[index] == 0)
+            {
+                continue;
+            }
+
+            if (record == null)
+            {
+                record = new StringBuilder().append(lastHour).append(':');
+            }
+            else
+            {
+                record.append(',');
+            }
+            record.append(index).append('=').append(counts[index]);
+        }
+        return record != null ? record.toString() : null;
+    }
+
+    private static void putOrRemove(SharedPreferences.Editor editor, String key, boolean value)
+    {
+        if (!value)
+        {
+            editor.remove(key);
+        }
+        else
+        {
+            editor.putBoolean(key, value);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Handle of an asynchronous rating check as started by {@link AppRater#checkToShowRatingOnStartAsync(java.util.concurrent.Executor)}.
+ * Cancel it when the activity goes away before the check is done, e.g. in onDestroy.
+ * Invalidating the context of the app rater cancels the pending request as well.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterRequest
+{
+    /** Request that is already done, returned in case no check was necessary. */
+    static final AppRaterRequest DONE = new AppRaterRequest(true);
+
+    private volatile boolean cancelled;
+    private volatile boolean done;
+
+    AppRaterRequest()
+    {
+        this(false);
+    }
+
+    private AppRaterRequest(boolean done)
+    {
+        this.done = done;
+    }
+
+    /**
+     * Cancel the request. A dialog that is not shown yet won't be shown anymore.
+     * Does nothing in case the request is already done.
+     */
+    public void cancel()
+    {
+        if (!done)
+        {
+            this.cancelled = true;
+        }
+    }
+
+    /**
+     * Check if the request got cancelled.
+     *
+     * @return Flag if cancelled.
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Check if the request is completed. This is the case once the check is done
+     * and the dialog was shown if needed.
+     *
+     * @return Flag if done.
+     */
+    public boolean isDone()
+    {
+        return done;
+    }
+
+    void setDone()
+    {
+        this.done = true;
+    }
+}
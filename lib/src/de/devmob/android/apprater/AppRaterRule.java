@@ -0,0 +1,560 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rating rule that replaces the built-in launch, day and event checks, compiled once into a tree of
+ * primitive comparisons. Evaluating the tree reads the counters of the store and never allocates.
+ * The rule is evaluated after the launch or event of a check was counted.
+ * 
+ * Syntax: comparisons combined with AND, OR, NOT and parentheses, AND binds stronger than OR.
+ * A comparison is a variable, optionally modulo a number, compared to a number with >=, >, <=, <, == or !=.
+ * <pre>
+ * launches                 count of launches since the first launch or the last remind later
+ * events                   count of positive events without a type, reset with the launches
+ * days                     full days since the first launch or the last remind later
+ * event:3                  count of the events of type 3, reset with the launches
+ * days_since:3             full days since the last event of type 3, never reset (very large without any event)
+ * launches_within:48h      launches within the last 48 hours (or days, e.g. 7d), at most 7 days
+ * events_within:7d         positive events without a type within the last 7 days, at most 7 days
+ * on_start, on_event       true while checking on start resp. on a positive event
+ * </pre>
+ * The built-in checks behave like the rule
+ * "on_start AND launches % 4 == 0 AND days >= 4 OR on_event AND events % 2 == 0" for the default configuration.
+ * Example: "((launches >= 10 AND days >= 3) OR event:2 >= 1) AND days_since:9 >= 30"
+ * 
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterRule
+{
+    private static final int  VARIABLE_LAUNCHES        = 0;
+    private static final int  VARIABLE_EVENTS          = 1;
+    private static final int  VARIABLE_DAYS            = 2;
+    private static final int  VARIABLE_EVENT_COUNT     = 3;
+    private static final int  VARIABLE_DAYS_SINCE      = 4;
+    private static final int  VARIABLE_LAUNCHES_WITHIN = 5;
+    private static final int  VARIABLE_EVENTS_WITHIN   = 6;
+
+    private static final int  OPERATOR_GREATER_EQUAL   = 0;
+    private static final int  OPERATOR_GREATER         = 1;
+    private static final int  OPERATOR_LESS_EQUAL      = 2;
+    private static final int  OPERATOR_LESS            = 3;
+    private static final int  OPERATOR_EQUAL           = 4;
+    private static final int  OPERATOR_NOT_EQUAL       = 5;
+
+    private static final String[] OPERATORS            = { ">=", ">", "<=", "<", "==", "!=" };
+
+    private final String      source;
+    private final Node        root;
+
+    private AppRaterRule(String source, Node root)
+    {
+        this.source = source;
+        this.root = root;
+    }
+
+    /**
+     * Compile the given rule.
+     * 
+     * @param source The rule, see the class description for the syntax.
+     * @return The compiled rule.
+     * @throws IllegalArgumentException In case the rule is broken.
+     */
+    public static AppRaterRule compile(String source)
+    {
+        Parser parser = new Parser(source);
+        Node root = parser.parseOr();
+        parser.expectEnd();
+        return new AppRaterRule(source, root);
+    }
+
+    /**
+     * Compile the rule that behaves like the built-in checks for the given amounts. Only used by the tests 
+     * to compare it with the precomputed schedule of the decider, see {@link AppRaterDecider}.
+     * 
+     * @param launchBeforeRate
+     * @param daysBeforeRate
+     * @param eventsBeforeRate
+     * @return The compiled rule.
+     */
+    static AppRaterRule forAmounts(int launchBeforeRate, int daysBeforeRate, int eventsBeforeRate)
+    {
+        return compile("on_start AND launches % " + launchBeforeRate + " == 0 AND days >= " + daysBeforeRate 
+                       + " OR on_event AND events % " + eventsBeforeRate + " == 0");
+    }
+
+    /**
+     * Evaluate the rule against the state of the given store.
+     * 
+     * @param store
+     * @param currentTime The current time in millis.
+     * @param onStart Flag if checking on start, otherwise on a positive event.
+     * @return Flag if the rating dialog should be shown.
+     */
+    public boolean test(AppRaterStore store, long currentTime, boolean onStart)
+    {
+        return root.test(store, currentTime, onStart);
+    }
+
+    @Override
+    public String toString()
+    {
+        return source;
+    }
+
+    /**
+     * Node of the compiled predicate tree.
+     */
+    private abstract static class Node
+    {
+        abstract boolean test(AppRaterStore store, long currentTime, boolean onStart);
+    }
+
+    private static final class And extends Node
+    {
+        private final Node[] operands;
+
+        And(Node[] operands)
+        {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(AppRaterStore store, long currentTime, boolean onStart)
+        {
+            for (int index = 0; index < operands.length; index++)
+            {
+                if (!operands[index].test(store, currentTime, onStart))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends Node
+    {
+        private final Node[] operands;
+
+        Or(Node[] operands)
+        {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(AppRaterStore store, long currentTime, boolean onStart)
+        {
+            for (int index = 0; index < operands.length; index++)
+            {
+                if (operands[index].test(store, currentTime, onStart))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class Not extends Node
+    {
+        private final Node operand;
+
+        Not(Node operand)
+        {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(AppRaterStore store, long currentTime, boolean onStart)
+        {
+            return !operand.test(store, currentTime, onStart);
+        }
+    }
+
+    private static final class Trigger extends Node
+    {
+        private final boolean start;
+
+        Trigger(boolean start)
+        {
+            this.start = start;
+        }
+
+        @Override
+        boolean test(AppRaterStore store, long currentTime, boolean onStart)
+        {
+            return onStart == start;
+        }
+    }
+
+    private static final class Comparison extends Node
+    {
+        private final int  variable;
+        /** The event type or the window in hours of the variable. */
+        private final int  argument;
+        /** The modulo applied to the value of the variable or 0. */
+        private final long modulo;
+        private final int  operator;
+        private final long value;
+
+        Comparison(int variable, int argument, long modulo, int operator, long value)
+        {
+            this.variable = variable;
+            this.argument = argument;
+            this.modulo = modulo;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        @Override
+        boolean test(AppRaterStore store, long currentTime, boolean onStart)
+        {
+            long actual = read(store, currentTime);
+            if (modulo != 0)
+            {
+                actual %= modulo;
+            }
+
+            switch (operator)
+            {
+                case OPERATOR_GREATER_EQUAL:
+                    return actual >= value;
+                case OPERATOR_GREATER:
+                    return actual > value;
+                case OPERATOR_LESS_EQUAL:
+                    return actual <= value;
+                case OPERATOR_LESS:
+                    return actual < value;
+                case OPERATOR_EQUAL:
+                    return actual == value;
+                default:
+                    return actual != value;
+            }
+        }
+
+        private long read(AppRaterStore store, long currentTime)
+        {
+            switch (variable)
+            {
+                case VARIABLE_LAUNCHES:
+                    return store.getCountOpened();
+                case VARIABLE_EVENTS:
+                    return store.getCountEvents();
+                case VARIABLE_DAYS:
+                    return (currentTime - store.getStoredStartDate()) / AppRaterDecider.MILLIS_PER_DAY;
+                case VARIABLE_EVENT_COUNT:
+                    return store.getCountEvents(argument);
+                case VARIABLE_DAYS_SINCE:
+                    long time = store.getLastEventTime(argument);
+                    return time == 0 ? Long.MAX_VALUE : (currentTime - time) / AppRaterDecider.MILLIS_PER_DAY;
+                case VARIABLE_LAUNCHES_WITHIN:
+                    return store.getCountOpenedWithin(currentTime, argument);
+                default:
+                    return store.getCountEventsWithin(currentTime, argument);
+            }
+        }
+    }
+
+    /**
+     * Recursive descent parser of the rule, only used while compiling.
+     */
+    private static final class Parser
+    {
+        private final String       source;
+        private final List<String> tokens    = new ArrayList<String>();
+        private final List<Integer> positions = new ArrayList<Integer>();
+        private int                next;
+
+        Parser(String source)
+        {
+            this.source = source;
+            tokenize();
+        }
+
+        Node parseOr()
+        {
+            List<Node> operands = new ArrayList<Node>();
+            operands.add(parseAnd());
+            while (acceptKeyword("OR", "||"))
+            {
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands.toArray(new Node[operands.size()]));
+        }
+
+        void expectEnd()
+        {
+            if (next < tokens.size())
+            {
+                throw error("Unexpected " + tokens.get(next));
+            }
+        }
+
+        private Node parseAnd()
+        {
+            List<Node> operands = new ArrayList<Node>();
+            operands.add(parseUnary());
+            while (acceptKeyword("AND", "&&"))
+            {
+                operands.add(parseUnary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(operands.toArray(new Node[operands.size()]));
+        }
+
+        private Node parseUnary()
+        {
+            if (acceptKeyword("NOT", "!"))
+            {
+                return new Not(parseUnary());
+            }
+            if (accept("("))
+            {
+                Node node = parseOr();
+                if (!accept(")"))
+                {
+                    throw error("Expected )");
+                }
+                return node;
+            }
+            if (accept("on_start"))
+            {
+                return new Trigger(true);
+            }
+            if (accept("on_event"))
+            {
+                return new Trigger(false);
+            }
+            return parseComparison();
+        }
+
+        private Node parseComparison()
+        {
+            int position = next;
+            String name = take("a variable");
+            int separator = name.indexOf(':');
+            String variableName = separator < 0 ? name : name.substring(0, separator);
+            String argumentText = separator < 0 ? null : name.substring(separator + 1);
+
+            int variable;
+            int argument = 0;
+            try
+            {
+                if ("launches".equals(variableName) && argumentText == null)
+                {
+                    variable = VARIABLE_LAUNCHES;
+                }
+                else if ("events".equals(variableName) && argumentText == null)
+                {
+                    variable = VARIABLE_EVENTS;
+                }
+                else if ("days".equals(variableName) && argumentText == null)
+                {
+                    variable = VARIABLE_DAYS;
+                }
+                else if ("event".equals(variableName) && argumentText != null)
+                {
+                    variable = VARIABLE_EVENT_COUNT;
+                    argument = Integer.parseInt(argumentText);
+                }
+                else if ("days_since".equals(variableName) && argumentText != null)
+                {
+                    variable = VARIABLE_DAYS_SINCE;
+                    argument = Integer.parseInt(argumentText);
+                }
+                else if ("launches_within".equals(variableName) && argumentText != null)
+                {
+                    variable = VARIABLE_LAUNCHES_WITHIN;
+                    argument = parseHours(argumentText);
+                }
+                else if ("events_within".equals(variableName) && argumentText != null)
+                {
+                    variable = VARIABLE_EVENTS_WITHIN;
+                    argument = parseHours(argumentText);
+                }
+                else
+                {
+                    next = position;
+                    throw error("Unknown variable " + name);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                next = position;
+                throw error("Broken number in " + name);
+            }
+
+            long modulo = 0;
+            if (accept("%"))
+            {
+                modulo = takeNumber();
+                if (modulo <= 0)
+                {
+                    throw error("Modulo has to be positive");
+                }
+            }
+
+            String operatorText = take("an operator");
+            int operator = -1;
+            for (int index = 0; index < OPERATORS.length; index++)
+            {
+                if (OPERATORS[index].equals(operatorText))
+                {
+                    operator = index;
+                }
+            }
+            if (operator < 0)
+            {
+                next--;
+                throw error("Expected an operator instead of " + operatorText);
+            }
+
+            return new Comparison(variable, argument, modulo, operator, takeNumber());
+        }
+
+        private int parseHours(String text)
+        {
+            int hours;
+            if (text.endsWith("d"))
+            {
+                hours = Integer.parseInt(text.substring(0, text.length() - 1)) * 24;
+            }
+            else if (text.endsWith("h"))
+            {
+                hours = Integer.parseInt(text.substring(0, text.length() - 1));
+            }
+            else
+            {
+                hours = Integer.parseInt(text);
+            }
+
+            if (hours <= 0 || hours > AppRaterTimeBuckets.BUCKET_COUNT)
+            {
+                throw new NumberFormatException();
+            }
+            return hours;
+        }
+
+        private long takeNumber()
+        {
+            String text = take("a number");
+            try
+            {
+                return Long.parseLong(text);
+            }
+            catch (NumberFormatException e)
+            {
+                next--;
+                throw error("Expected a number instead of " + text);
+            }
+        }
+
+        private String take(String expected)
+        {
+            if (next >= tokens.size())
+            {
+                throw error("Expected " + expected);
+            }
+            return tokens.get(next++);
+        }
+
+        private boolean accept(String token)
+        {
+            if (next < tokens.size() && tokens.get(next).equals(token))
+            {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword, String symbol)
+        {
+            if (next < tokens.size() && (tokens.get(next).equalsIgnoreCase(keyword) || tokens.get(next).equals(symbol)))
+            {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private IllegalArgumentException error(String message)
+        {
+            int position = next < positions.size() ? positions.get(next).intValue() : source.length();
+            return new IllegalArgumentException(message + " at position " + position + " of rule: " + source);
+        }
+
+        /**
+         * Split the source into names and numbers, operators and parentheses.
+         */
+        private void tokenize()
+        {
+            int index = 0;
+            while (index < source.length())
+            {
+                char current = source.charAt(index);
+                if (Character.isWhitespace(current))
+                {
+                    index++;
+                    continue;
+                }
+
+                int start = index;
+                if (Character.isLetterOrDigit(current) || current == '_' || current == '-')
+                {
+                    while (index < source.length() && isNameChar(source.charAt(index)))
+                    {
+                        index++;
+                    }
+                }
+                else if (index + 1 < source.length() && isDoubleOperator(source.substring(index, index + 2)))
+                {
+                    index += 2;
+                }
+                else if ("()<>%!".indexOf(current) >= 0)
+                {
+                    index++;
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Unexpected " + current + " at position " + index + " of rule: " + source);
+                }
+
+                tokens.add(source.substring(start, index));
+                positions.add(Integer.valueOf(start));
+            }
+        }
+
+        private static boolean isNameChar(char value)
+        {
+            return Character.isLetterOrDigit(value) || value == '_' || value == ':' || value == '-';
+        }
+
+        private static boolean isDoubleOperator(String value)
+        {
+            return ">=".equals(value) || "<=".equals(value) || "==".equals(value) || "!=".equals(value) 
+                    || "&&".equals(value) || "||".equals(value);
+        }
+    }
+}
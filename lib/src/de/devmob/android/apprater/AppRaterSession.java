@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.SystemClock;
+
+/**
+ * Session state of the process, updated by {@link AppRaterLifecycleCallbacks} while the sessions are tracked.
+ * A new session starts when an activity is created or started after the app was in the background 
+ * for longer than the configured session timeout. The callbacks only start the next session, they never 
+ * count anything themselves: a launch is only counted when the app calls {@link AppRater#checkToShowRatingOnStart()}, 
+ * at most once per session. So recreating an activity on a configuration change neither counts nor writes 
+ * to the storage, and a session without a check on start isn't counted at all.
+ * 
+ * Without tracking every check on start counts as launch, as before.
+ *
+ * @author Friederike Wild
+ */
+final class AppRaterSession
+{
+    /** Flag if the sessions are tracked via the activity lifecycle callbacks. */
+    private static volatile boolean      tracking;
+
+    /** The current session, starting with 1 for the launch of the process. */
+    private static final AtomicInteger   session          = new AtomicInteger(1);
+    /** The last session that was counted as launch. */
+    private static final AtomicInteger   countedSession   = new AtomicInteger();
+
+    /** The amount of started activities. Only accessed on the UI thread. */
+    private static int                   startedActivities;
+    /** The time the last activity was stopped or -1 while in the foreground. Only accessed on the UI thread. */
+    private static long                  backgroundSince  = -1;
+
+    private AppRaterSession()
+    {
+    }
+
+    static void setTracking(boolean tracking)
+    {
+        AppRaterSession.tracking = tracking;
+    }
+
+    static boolean isTracking()
+    {
+        return tracking;
+    }
+
+    /**
+     * Claim the launch of the current session. Only the first claim per session succeeds.
+     * 
+     * @return True in case the check on start should count a launch.
+     */
+    static boolean claimLaunch()
+    {
+        if (!tracking)
+        {
+            return true;
+        }
+
+        int current = session.get();
+        int counted = countedSession.get();
+        return counted != current && countedSession.compareAndSet(counted, current);
+    }
+
+    /**
+     * To be called on the UI thread when an activity is created or started.
+     * Uses the session timeout of the configuration in case it was loaded already, otherwise the default one,
+     * so nothing is read on the UI thread. The configuration is loaded by the first check or by 
+     * {@link AppRater#prefetch(android.content.Context)}.
+     */
+    static void onForeground()
+    {
+        if (backgroundSince >= 0)
+        {
+            AppRaterConfig config = AppRater.getLoadedConfig();
+            int timeout = config != null ? config.getSessionTimeout() : AppRaterConfig.DEFAULT_SESSION_TIMEOUT;
+            long timeoutMillis = timeout * 1000L;
+            if (SystemClock.elapsedRealtime() - backgroundSince > timeoutMillis)
+            {
+                int current = session.incrementAndGet();
+                if (AppRaterLog.isEnabled())
+                {
+                    AppRaterLog.log(AppRaterLog.DEBUG, "New session {}", current);
+                }
+            }
+            backgroundSince = -1;
+        }
+    }
+
+    /**
+     * To be called on the UI thread when an activity is started.
+     */
+    static void onActivityStarted()
+    {
+        startedActivities++;
+    }
+
+    /**
+     * To be called on the UI thread when an activity is stopped.
+     */
+    static void onActivityStopped()
+    {
+        if (startedActivities > 0 && --startedActivities == 0)
+        {
+            backgroundSince = SystemClock.elapsedRealtime();
+        }
+    }
+}
@@ -0,0 +1,731 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary file to store the app rater state with a fixed layout.
+ * The file holds two slots, each with a complete copy of the state, a sequence number and a checksum.
+ * A write goes to the slot that doesn't hold the newest state, so a crash in the middle of a write 
+ * leaves the previous state intact. Reading takes the valid slot with the highest sequence number.
+ * Only the bytes that differ from the previous content of the written slot are written, optionally 
+ * via a memory mapped buffer, so an increment only touches a few bytes instead of rewriting a whole xml file.
+ *
+ * Layout of a slot (big endian), the second slot starts at {@link #SLOT_SIZE}:
+ * <pre>
+ *  0 int  magic
+ *  4 int  version
+ *  8 int  CRC32 checksum of the sequence number and the payload
+ * 12 int  sequence number, increased on each write (since version 6)
+ * 16 long start date
+ * 24 int  count opened
+ * 28 int  count events
+ * 32 int  flags (1 = rated, 2 = declined)
+ * 36 int  amount of event types (since version 2)
+ * 40 int  event type, int count (since version 2, repeated for the fixed capacity of event types)
+ * 168 long hour of the newest bucket of the recent launches (since version 3)
+ * 176 int  count of each bucket of the recent launches (since version 3, repeated for all buckets)
+ * 848 long hour of the newest bucket of the recent events (since version 3)
+ * 856 int  count of each bucket of the recent events (since version 3, repeated for all buckets)
+ * 1528 int epoch of the counters, increased on each reset of the counters (since version 4)
+ * 1532 long time of the last event of each event type (since version 5, repeated for the fixed capacity of event types)
+ * </pre>
+ *
+ * Files before version 6 hold a single slot without the sequence number, so the payload starts at 12.
+ * They end earlier and are read without the missing values. The first write goes to the second slot 
+ * in the current version, so the old state is kept till the new one is complete.
+ *
+ * The content of the slots is kept in memory after each read and write to find the changed bytes.
+ * Several processes sharing the file have to read it under the file lock before writing, see {@link #lock(boolean)}.
+ *
+ * Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public class AppRaterStateFile
+{
+    /** Magic number to identify the file: "DARS" */
+    private static final int MAGIC          = 0x44415253;
+    /** The version of the layout that is written. */
+    private static final int VERSION        = 6;
+
+    /** The maximum amount of event types stored. */
+    public static final int  MAX_EVENT_TYPES = AppRaterEventCounts.CAPACITY;
+
+    /** Size of the header before version 6: magic, version and checksum. */
+    private static final int HEADER_SIZE_V1 = 12;
+    /** Size of the header: magic, version, checksum and sequence number. */
+    private static final int HEADER_SIZE    = HEADER_SIZE_V1 + 4;
+    /** Size of the payload of version 1. */
+    private static final int PAYLOAD_SIZE_V1 = 20;
+    /** Size of the payload of version 2. */
+    private static final int PAYLOAD_SIZE_V2 = PAYLOAD_SIZE_V1 + 4 + MAX_EVENT_TYPES * 8;
+    /** Size of the payload of version 3. */
+    private static final int PAYLOAD_SIZE_V3 = PAYLOAD_SIZE_V2 + 2 * (8 + AppRaterTimeBuckets.BUCKET_COUNT * 4);
+    /** Size of the payload of version 4. */
+    private static final int PAYLOAD_SIZE_V4 = PAYLOAD_SIZE_V3 + 4;
+    /** Size of the payload of version 5 and later. */
+    private static final int PAYLOAD_SIZE   = PAYLOAD_SIZE_V4 + MAX_EVENT_TYPES * 8;
+    /** Size of one slot holding a complete state. */
+    static final int         SLOT_SIZE      = HEADER_SIZE + PAYLOAD_SIZE;
+    private static final int FILE_SIZE      = 2 * SLOT_SIZE;
+
+    /** Changed bytes closer than this are written together. */
+    private static final int MAX_UNCHANGED_GAP = 16;
+
+    private static final int FLAG_RATED     = 1;
+    private static final int FLAG_DECLINED  = 2;
+
+    private final File       file;
+    private final boolean    memoryMapped;
+
+    /** The content of both slots as last read or written. */
+    private final byte[][]   slots          = new byte[2][SLOT_SIZE];
+    /** Flag if the content of the slots is known. Otherwise the next write writes the complete slot. */
+    private boolean          slotsKnown;
+    /** The slot holding the newest valid state or -1 if there is none. */
+    private int              currentSlot    = -1;
+    /** The sequence number of the newest valid state. */
+    private int              sequence;
+
+    /** Reused buffer for the next content of a slot. */
+    private final byte[]     bytes          = new byte[SLOT_SIZE];
+    private final ByteBuffer buffer         = ByteBuffer.wrap(bytes);
+    private final CRC32      checksum       = new CRC32();
+
+    private RandomAccessFile randomAccessFile;
+    private MappedByteBuffer mappedBuffer;
+
+    // The last read values
+    private long             startDate;
+    private int              countOpened;
+    private int              countEvents;
+    private boolean          rated;
+    private boolean          declined;
+    private int              eventTypeCount;
+    private final int[]      eventIds       = new int[MAX_EVENT_TYPES];
+    private final int[]      eventCounts    = new int[MAX_EVENT_TYPES];
+    private final long[]     eventTimes     = new long[MAX_EVENT_TYPES];
+    private long             recentOpenedHour;
+    private final int[]      recentOpened   = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+    private long             recentEventsHour;
+    private final int[]      recentEvents   = new int[AppRaterTimeBuckets.BUCKET_COUNT];
+    private int              epoch;
+
+    /**
+     * Create the state file. Nothing is read or written till the first call of {@link #read()} or a write.
+     *
+     * @param file The file to use.
+     * @param memoryMapped Flag if the file should be accessed via a memory mapped buffer.
+     */
+    public AppRaterStateFile(File file, boolean memoryMapped)
+    {
+        this.file = file;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Check if the file exists.
+     *
+     * @return Flag if a state was stored before.
+     */
+    public boolean exists()
+    {
+        return file.exists() && file.length() >= HEADER_SIZE_V1 + PAYLOAD_SIZE_V1;
+    }
+
+    /**
+     * Read the stored state. Use the getters to access the values afterwards.
+     *
+     * @return Flag if a valid state could be read. In case the file is missing or both slots are corrupt,
+     *         all values are reset to their defaults.
+     */
+    public synchronized boolean read()
+    {
+        startDate = 0;
+        countOpened = 0;
+        countEvents = 0;
+        rated = false;
+        declined = false;
+        eventTypeCount = 0;
+        Arrays.fill(eventTimes, 0);
+        recentOpenedHour = 0;
+        recentEventsHour = 0;
+        Arrays.fill(recentOpened, 0);
+        Arrays.fill(recentEvents, 0);
+        epoch = 0;
+
+        if (!exists())
+        {
+            currentSlot = -1;
+            sequence = 0;
+            return false;
+        }
+
+        int version = readSlots();
+        if (version <= 0)
+        {
+            return false;
+        }
+
+        int payload = version < 6 ? HEADER_SIZE_V1 : HEADER_SIZE;
+        ByteBuffer buffer = ByteBuffer.wrap(slots[currentSlot]);
+        buffer.position(payload);
+
+        startDate = buffer.getLong();
+        countOpened = buffer.getInt();
+        countEvents = buffer.getInt();
+        int flags = buffer.getInt();
+        rated = (flags & FLAG_RATED) != 0;
+        declined = (flags & FLAG_DECLINED) != 0;
+
+        if (version > 1)
+        {
+            int count = Math.max(0, Math.min(buffer.getInt(), MAX_EVENT_TYPES));
+            for (int index = 0; index < count; index++)
+            {
+                eventIds[index] = buffer.getInt();
+                eventCounts[index] = buffer.getInt();
+            }
+            eventTypeCount = count;
+        }
+
+        if (version > 2)
+        {
+            buffer.position(payload + PAYLOAD_SIZE_V2);
+            recentOpenedHour = buffer.getLong();
+            buffer.asIntBuffer().get(recentOpened);
+            buffer.position(buffer.position() + recentOpened.length * 4);
+            recentEventsHour = buffer.getLong();
+            buffer.asIntBuffer().get(recentEvents);
+        }
+
+        if (version > 3)
+        {
+            buffer.position(payload + PAYLOAD_SIZE_V3);
+            epoch = buffer.getInt();
+        }
+
+        if (version > 4)
+        {
+            for (int index = 0; index < eventTypeCount; index++)
+            {
+                eventTimes[index] = buffer.getLong();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if the given content of a slot holds a valid state.
+     *
+     * @param content The content of the slot.
+     * @param slot The index of the slot.
+     * @param sequences Receives the sequence number of the slot, 0 for versions before 6.
+     * @return The version of the layout or 0 in case the slot is invalid.
+     */
+    private int validate(byte[] content, int slot, int[] sequences)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        if (buffer.getInt() != MAGIC)
+        {
+            return 0;
+        }
+        int version = buffer.getInt();
+        // Only the first slot can hold an older version
+        if (version < 1 || (version < 6 && slot != 0))
+        {
+            return 0;
+        }
+        int storedChecksum = buffer.getInt();
+
+        // Older versions end earlier, newer versions keep the current layout as prefix
+        checksum.reset();
+        if (version < 6)
+        {
+            checksum.update(content, HEADER_SIZE_V1, getPayloadSize(version));
+            sequences[slot] = 0;
+        }
+        else
+        {
+            checksum.update(content, HEADER_SIZE_V1, 4 + getPayloadSize(version));
+            sequences[slot] = buffer.getInt();
+        }
+        return (int) checksum.getValue() == storedChecksum ? version : 0;
+    }
+
+    /**
+     * Read the content of both slots from the file and find the newest valid state.
+     *
+     * @return The version of the newest valid state, 0 in case there is none or -1 in case the file can't be read.
+     */
+    private int readSlots()
+    {
+        slotsKnown = false;
+        currentSlot = -1;
+        sequence = 0;
+        try
+        {
+            open();
+
+            for (int slot = 0; slot < 2; slot++)
+            {
+                if (mappedBuffer != null)
+                {
+                    mappedBuffer.position(slot * SLOT_SIZE);
+                    mappedBuffer.get(slots[slot]);
+                }
+                else
+                {
+                    randomAccessFile.seek(slot * SLOT_SIZE);
+                    randomAccessFile.readFully(slots[slot]);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+            return -1;
+        }
+        slotsKnown = true;
+
+        // Take the newest valid slot, the sequence number may wrap around
+        int[] versions = new int[2];
+        int[] sequences = new int[2];
+        for (int slot = 0; slot < 2; slot++)
+        {
+            versions[slot] = validate(slots[slot], slot, sequences);
+            if (versions[slot] > 0 && (currentSlot < 0 || sequences[slot] - sequences[currentSlot] > 0))
+            {
+                currentSlot = slot;
+            }
+        }
+        if (currentSlot < 0)
+        {
+            return 0;
+        }
+        sequence = sequences[currentSlot];
+        return versions[currentSlot];
+    }
+
+    /**
+     * Write the given state without event types.
+     *
+     * @param startDate
+     * @param countOpened
+     * @param countEvents
+     * @param rated
+     * @param declined
+     * @param sync Flag if the write has to reach the storage device before returning.
+     * @return Flag if writing succeeded.
+     */
+    public boolean write(long startDate, int countOpened, int countEvents, boolean rated, boolean declined, boolean sync)
+    {
+        return write(startDate, countOpened, countEvents, rated, declined, null, null, null, 0, null, null, 0, sync);
+    }
+
+    /**
+     * Write the given state.
+     *
+     * @param startDate
+     * @param countOpened
+     * @param countEvents
+     * @param rated
+     * @param declined
+     * @param eventIds The event types, only the first eventTypeCount elements are used.
+     * @param eventCounts The counts of the event types, only the first eventTypeCount elements are used.
+     * @param eventTypeCount The amount of event types, at most {@link #MAX_EVENT_TYPES}.
+     * @param recentOpened The hourly counts of the recent launches or null.
+     * @param recentEvents The hourly counts of the recent events or null.
+     * @param sync Flag if the write has to reach the storage device before returning.
+     * @return Flag if writing succeeded.
+     */
+    public boolean write(long startDate, int countOpened, int countEvents, boolean rated, boolean declined, 
+                         int[] eventIds, int[] eventCounts, int eventTypeCount, 
+                         AppRaterTimeBuckets recentOpened, AppRaterTimeBuckets recentEvents, boolean sync)
+    {
+        return write(startDate, countOpened, countEvents, rated, declined, eventIds, eventCounts, null, eventTypeCount, 
+                     recentOpened, recentEvents, 0, sync);
+    }
+
+    /**
+     * Write the given state with the times of the last events and the epoch of the counters.
+     *
+     * @param startDate
+     * @param countOpened
+     * @param countEvents
+     * @param rated
+     * @param declined
+     * @param eventIds The event types, only the first eventTypeCount elements are used.
+     * @param eventCounts The counts of the event types, only the first eventTypeCount elements are used.
+     * @param eventTimes The times of the last events of the types or null.
+     * @param eventTypeCount The amount of event types, at most {@link #MAX_EVENT_TYPES}.
+     * @param recentOpened The hourly counts of the recent launches or null.
+     * @param recentEvents The hourly counts of the recent events or null.
+     * @param epoch The epoch of the counters, see {@link #getEpoch()}.
+     * @param sync Flag if the write has to reach the storage device before returning.
+     * @return Flag if writing succeeded.
+     */
+    public synchronized boolean write(long startDate, int countOpened, int countEvents, boolean rated, boolean declined, 
+                                      int[] eventIds, int[] eventCounts, long[] eventTimes, int eventTypeCount, 
+                                      AppRaterTimeBuckets recentOpened, AppRaterTimeBuckets recentEvents, int epoch, boolean sync)
+    {
+        if (eventTypeCount > MAX_EVENT_TYPES)
+        {
+            throw new IllegalArgumentException("At most " + MAX_EVENT_TYPES + " event types can be stored");
+        }
+
+        // Find the slot of the newest state in case the file wasn't read or written before
+        if (!slotsKnown && readSlots() < 0)
+        {
+            return false;
+        }
+
+        int nextSequence = sequence + 1;
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        // Checksum placeholder
+        buffer.putInt(0);
+        buffer.putInt(nextSequence);
+        buffer.putLong(startDate);
+        buffer.putInt(countOpened);
+        buffer.putInt(countEvents);
+        buffer.putInt((rated ? FLAG_RATED : 0) | (declined ? FLAG_DECLINED : 0));
+        buffer.putInt(eventTypeCount);
+        for (int index = 0; index < MAX_EVENT_TYPES; index++)
+        {
+            boolean used = index < eventTypeCount;
+            buffer.putInt(used ? eventIds[index] : 0);
+            buffer.putInt(used ? eventCounts[index] : 0);
+        }
+        recentOpenedHour = copyBuckets(recentOpened, this.recentOpened);
+        recentEventsHour = copyBuckets(recentEvents, this.recentEvents);
+        buffer.putLong(recentOpenedHour);
+        buffer.asIntBuffer().put(this.recentOpened);
+        buffer.position(buffer.position() + this.recentOpened.length * 4);
+        buffer.putLong(recentEventsHour);
+        buffer.asIntBuffer().put(this.recentEvents);
+        buffer.position(buffer.position() + this.recentEvents.length * 4);
+        buffer.putInt(epoch);
+        for (int index = 0; index < MAX_EVENT_TYPES; index++)
+        {
+            buffer.putLong(index < eventTypeCount && eventTimes != null ? eventTimes[index] : 0);
+        }
+
+        checksum.reset();
+        checksum.update(bytes, HEADER_SIZE_V1, 4 + PAYLOAD_SIZE);
+        buffer.putInt(8, (int) checksum.getValue());
+
+        // Keep the newest state untouched till this one is complete
+        int slot = currentSlot == 0 ? 1 : 0;
+        try
+        {
+            open();
+            writeChanges(slot);
+
+            if (sync)
+            {
+                if (mappedBuffer != null)
+                {
+                    mappedBuffer.force();
+                }
+                else
+                {
+                    randomAccessFile.getFD().sync();
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            close();
+            return false;
+        }
+
+        currentSlot = slot;
+        sequence = nextSequence;
+
+        this.startDate = startDate;
+        this.countOpened = countOpened;
+        this.countEvents = countEvents;
+        this.rated = rated;
+        this.declined = declined;
+        for (int index = 0; index < eventTypeCount; index++)
+        {
+            this.eventIds[index] = eventIds[index];
+            this.eventCounts[index] = eventCounts[index];
+            this.eventTimes[index] = eventTimes != null ? eventTimes[index] : 0;
+        }
+        this.eventTypeCount = eventTypeCount;
+        this.epoch = epoch;
+
+        return true;
+    }
+
+    /**
+     * Write the bytes of the new content that differ from the previous content of the given slot.
+     *
+     * @param slot
+     * @throws IOException
+     */
+    private void writeChanges(int slot) throws IOException
+    {
+        byte[] previous = slots[slot];
+        int offset = slot * SLOT_SIZE;
+        int index = 0;
+        while (index < SLOT_SIZE)
+        {
+            if (bytes[index] == previous[index])
+            {
+                index++;
+                continue;
+            }
+
+            // Extend the range over unchanged gaps that are cheaper to write than to seek over
+            int rangeStart = index;
+            int rangeEnd = index + 1;
+            for (int next = rangeEnd; next < SLOT_SIZE && next - rangeEnd < MAX_UNCHANGED_GAP; next++)
+            {
+                if (bytes[next] != previous[next])
+                {
+                    rangeEnd = next + 1;
+                }
+            }
+
+            if (mappedBuffer != null)
+            {
+                mappedBuffer.position(offset + rangeStart);
+                mappedBuffer.put(bytes, rangeStart, rangeEnd - rangeStart);
+            }
+            else
+            {
+                randomAccessFile.seek(offset + rangeStart);
+                randomAccessFile.write(bytes, rangeStart, rangeEnd - rangeStart);
+            }
+            System.arraycopy(bytes, rangeStart, previous, rangeStart, rangeEnd - rangeStart);
+            index = rangeEnd;
+        }
+    }
+
+    /**
+     * Lock the whole file against other processes, e.g. to read, merge and write the state as one step.
+     * The lock doesn't guard against other threads or other instances on the same file in this process.
+     *
+     * @param wait Flag to wait till the lock is available. Otherwise null is returned in case another process holds it.
+     * @return The lock to release after the last access or null.
+     * @throws IOException In case the file can't be opened or locked.
+     */
+    public synchronized FileLock lock(boolean wait) throws IOException
+    {
+        open();
+        FileChannel channel = randomAccessFile.getChannel();
+        return wait ? channel.lock() : channel.tryLock();
+    }
+
+    /**
+     * Close and delete the file.
+     *
+     * @return Flag if the file is gone.
+     */
+    public synchronized boolean delete()
+    {
+        close();
+        return !file.exists() || file.delete();
+    }
+
+    /**
+     * Close the file. It is opened again on the next access.
+     */
+    public synchronized void close()
+    {
+        mappedBuffer = null;
+        slotsKnown = false;
+
+        if (randomAccessFile != null)
+        {
+            try
+            {
+                randomAccessFile.close();
+            }
+            catch (IOException e)
+            {
+                // Ignore, nothing left to do
+            }
+            randomAccessFile = null;
+        }
+    }
+
+    public synchronized long getStartDate()
+    {
+        return startDate;
+    }
+
+    public synchronized int getCountOpened()
+    {
+        return countOpened;
+    }
+
+    public synchronized int getCountEvents()
+    {
+        return countEvents;
+    }
+
+    public synchronized boolean isRated()
+    {
+        return rated;
+    }
+
+    public synchronized boolean isDeclined()
+    {
+        return declined;
+    }
+
+    /**
+     * Copy the read hourly counts of the recent launches.
+     *
+     * @param target
+     */
+    public synchronized void copyRecentOpenedTo(AppRaterTimeBuckets target)
+    {
+        target.set(recentOpenedHour, recentOpened);
+    }
+
+    /**
+     * Copy the read hourly counts of the recent events.
+     *
+     * @param target
+     */
+    public synchronized void copyRecentEventsTo(AppRaterTimeBuckets target)
+    {
+        target.set(recentEventsHour, recentEvents);
+    }
+
+    /**
+     * Get the epoch of the counters. Stores that merge counter changes of several processes
+     * increase it on each reset of the counters, so changes counted before the reset are dropped.
+     *
+     * @return The read epoch or 0 for files before version 4.
+     */
+    public synchronized int getEpoch()
+    {
+        return epoch;
+    }
+
+    public synchronized int getEventTypeCount()
+    {
+        return eventTypeCount;
+    }
+
+    public synchronized int getEventId(int index)
+    {
+        return eventIds[index];
+    }
+
+    public synchronized int getEventCount(int index)
+    {
+        return eventCounts[index];
+    }
+
+    /**
+     * Get the time of the last event of the event type at the given index.
+     *
+     * @param index
+     * @return The time in millis or 0 for files before version 5.
+     */
+    public synchronized long getEventTime(int index)
+    {
+        return eventTimes[index];
+    }
+
+    /**
+     * Get the size of the payload of the given version of the layout.
+     *
+     * @param version
+     * @return The size in bytes.
+     */
+    private static int getPayloadSize(int version)
+    {
+        switch (version)
+        {
+            case 1:
+                return PAYLOAD_SIZE_V1;
+            case 2:
+                return PAYLOAD_SIZE_V2;
+            case 3:
+                return PAYLOAD_SIZE_V3;
+            case 4:
+                return PAYLOAD_SIZE_V4;
+            case 5:
+            default:
+                return PAYLOAD_SIZE;
+        }
+    }
+
+    /**
+     * Copy the given buckets to the target array.
+     *
+     * @param buckets The buckets or null for empty ones.
+     * @param target
+     * @return The hour of the newest bucket.
+     */
+    private static long copyBuckets(AppRaterTimeBuckets buckets, int[] target)
+    {
+        if (buckets == null)
+        {
+            Arrays.fill(target, 0);
+            return 0;
+        }
+        return buckets.copyTo(target);
+    }
+
+    private void open() throws IOException
+    {
+        if (randomAccessFile != null)
+        {
+            return;
+        }
+
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists())
+        {
+            parent.mkdirs();
+        }
+
+        randomAccessFile = new RandomAccessFile(file, "rw");
+        if (randomAccessFile.length() < FILE_SIZE)
+        {
+            randomAccessFile.setLength(FILE_SIZE);
+        }
+
+        if (memoryMapped)
+        {
+            mappedBuffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        }
+    }
+}
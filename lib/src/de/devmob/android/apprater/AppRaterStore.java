@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+/**
+ * Interface of the storage of the app rater state. 
+ * Covers everything the {@link AppRater} needs to decide when to show the rating dialog
+ * and to store the answer of the user.
+ * 
+ * Available implementations are {@link AppRaterPreferences} (default, Android shared preferences or binary file),
+ * {@link AppRaterMemoryStore} (no persistence), {@link AppRaterFileStore} (plain binary file on any JVM)
+ * and {@link AppRaterMultiProcessStore} (binary file shared by several processes).
+ * Implementations have to be thread safe.
+ *
+ * @author Friederike Wild
+ */
+public interface AppRaterStore
+{
+    /**
+     * Check if rating was already done or denied.
+     * 
+     * @return
+     */
+    public boolean isRatingRequestDeactivated();
+
+    /**
+     * Check if rating was already denied.
+     * 
+     * @return
+     */
+    public boolean isRatingRequestDeclined();
+
+    /**
+     * Get the stored start date.
+     * This is the first date in millis the app was launched on,
+     * or the date the user decided to be asked later.
+     * Initializes the date on first call.
+     * 
+     * @return The date in millis to compare current date with
+     */
+    public long getStoredStartDate();
+
+    /**
+     * Increase the count of times the app was opened.
+     * 
+     * @return The increased count.
+     */
+    public int increaseCountOpened();
+
+    /**
+     * Get the current count of opening the application.
+     * 
+     * @return The count of new app starts.
+     */
+    public int getCountOpened();
+
+    /**
+     * Increase the count of positive events.
+     * 
+     * @return The increased count.
+     */
+    public int increaseCountEvents();
+
+    /**
+     * Add several positive events at once.
+     * 
+     * @param amount The amount of events.
+     * @return The increased count.
+     */
+    public int addCountEvents(int amount);
+
+    /**
+     * Get the current count of positive events logged in the application.
+     * 
+     * @return The count of positive events.
+     */
+    public int getCountEvents();
+
+    /**
+     * Add to the count of the given event type.
+     * The counts of all event types are reset together with the count of positive events.
+     * 
+     * @param eventId The event type as defined by the app.
+     * @param amount The amount to add, e.g. the weight of the event type.
+     * @return The increased count or -1 in case no more event types can be counted.
+     */
+    public int increaseCountEvents(int eventId, int amount);
+
+    /**
+     * Get the current count of the given event type.
+     * 
+     * @param eventId The event type as defined by the app.
+     * @return The count of the event type.
+     */
+    public int getCountEvents(int eventId);
+
+    /**
+     * Get the time of the last event of the given type.
+     * Unlike the count, this is not reset when the user wants to be asked later.
+     * 
+     * @param eventId The event type as defined by the app.
+     * @return The time in millis or 0 in case there was no event of the type.
+     */
+    public long getLastEventTime(int eventId);
+
+    /**
+     * Get the count of app launches within the given amount of hours up to the given time.
+     * Unlike the total count, this is not reset when the user wants to be asked later.
+     * 
+     * @param currentTime The current time in millis.
+     * @param hours The amount of hours, at most one week.
+     * @return The count of recent app starts.
+     */
+    public int getCountOpenedWithin(long currentTime, int hours);
+
+    /**
+     * Get the count of positive events without a type within the given amount of hours up to the given time.
+     * Unlike the total count, this is not reset when the user wants to be asked later.
+     * 
+     * @param currentTime The current time in millis.
+     * @param hours The amount of hours, at most one week.
+     * @return The count of recent positive events.
+     */
+    public int getCountEventsWithin(long currentTime, int hours);
+
+    /**
+     * Get the generation of the state. It is increased on each transition that restarts the
+     * rating schedule (reset, remind later and the decisions of the user), so cached values 
+     * derived from the state can be checked with a single compare. Not persisted.
+     * 
+     * @return The current generation.
+     */
+    public int getGeneration();
+
+    /**
+     * Reset all stored values. This also resets a previous decision of the user.
+     */
+    public void reset();
+
+    /**
+     * Store that user rated - don't ask until further notice
+     * e.g. about major version update.
+     */
+    public void storeRated();
+
+    /**
+     * Reset the app rating counter and settings to automatically ask for rating later again. 
+     */
+    public void storeToRateLater();
+
+    /**
+     * Store to never ask for a rating again.
+     */
+    public void storeRatingDeclined();
+
+    /**
+     * Write all pending changes. Blocks till the values are stored.
+     */
+    public void flush();
+
+    /**
+     * Write all pending changes in the background as soon as possible.
+     * To be used e.g. when the app is about to be paused.
+     */
+    public void flushInBackground();
+}
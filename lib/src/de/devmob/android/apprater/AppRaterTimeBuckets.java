@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Counter of the recent past in a fixed-size circular array of hourly buckets.
+ * Adding moves the window forward and clears the buckets that fell out of it,
+ * so the memory never grows with the amount of counted events. Summing up a 
+ * window of hours costs one pass over these buckets.
+ * 
+ * Adding within the current hour is a single atomic add without locking, only moving the window
+ * forward to the next hour is synchronized. Summing up doesn't lock either, so a sum concurrent 
+ * to adding may miss the latest amounts.
+ * 
+ * The buckets are aligned to full hours since epoch. Not bound to Android, so it can be used on any JVM.
+ *
+ * @author Friederike Wild
+ */
+public final class AppRaterTimeBuckets
+{
+    /** Millis of one hour, the time span of a bucket. */
+    public static final long MILLIS_PER_HOUR = 1000 * 60 * 60;
+    /** Amount of buckets, the longest window that can be summed up: one week. */
+    public static final int  BUCKET_COUNT    = 7 * 24;
+
+    private final AtomicIntegerArray counts  = new AtomicIntegerArray(BUCKET_COUNT);
+    /** The hour since epoch of the newest bucket. Only set after the buckets in between were cleared. */
+    private volatile long    lastHour;
+
+    /**
+     * Add to the bucket of the given time.
+     * 
+     * @param time The time in millis.
+     * @param amount The amount to add.
+     */
+    public void add(long time, int amount)
+    {
+        long hour = time / MILLIS_PER_HOUR;
+        long newestHour = lastHour;
+        if (hour > newestHour)
+        {
+            // Only once per hour
+            synchronized (this)
+            {
+                advance(hour);
+            }
+            newestHour = lastHour;
+        }
+
+        // Ignore times that are older than the window, e.g. after the clock was set back
+        if (hour > newestHour - BUCKET_COUNT)
+        {
+            counts.addAndGet(indexOf(hour), amount);
+        }
+    }
+
+    /**
+     * Sum up the buckets of the given amount of hours up to the given time.
+     * The current hour counts as the first one.
+     * 
+     * @param time The time in millis.
+     * @param hours The amount of hours, at most {@link #BUCKET_COUNT}.
+     * @return The sum.
+     */
+    public int sum(long time, int hours)
+    {
+        long hour = time / MILLIS_PER_HOUR;
+        long newestHour = lastHour;
+        long first = Math.max(hour - Math.min(hours, BUCKET_COUNT) + 1, newestHour - BUCKET_COUNT + 1);
+        long last = Math.min(hour, newestHour);
+
+        int sum = 0;
+        for (long current = first; current <= last; current++)
+        {
+            sum += counts.get(indexOf(current));
+        }
+        return sum;
+    }
+
+    /**
+     * Clear all buckets.
+     */
+    public synchronized void clear()
+    {
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            counts.set(index, 0);
+        }
+    }
+
+    /**
+     * Copy the buckets in their internal order, e.g. to store them.
+     * 
+     * @param target Array of at least {@link #BUCKET_COUNT} elements.
+     * @return The hour since epoch of the newest bucket.
+     */
+    public synchronized long copyTo(int[] target)
+    {
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            target[index] = counts.get(index);
+        }
+        return lastHour;
+    }
+
+    /**
+     * Replace the buckets, e.g. with the values loaded from the storage.
+     * 
+     * @param lastHour The hour since epoch of the newest bucket as returned by {@link #copyTo(int[])}.
+     * @param source Array of at least {@link #BUCKET_COUNT} elements in the order of {@link #copyTo(int[])}.
+     */
+    public synchronized void set(long lastHour, int[] source)
+    {
+        for (int index = 0; index < BUCKET_COUNT; index++)
+        {
+            counts.set(index, source[index]);
+        }
+        this.lastHour = lastHour;
+    }
+
+    /**
+     * Add all buckets to the given buckets, e.g. to merge the counts of several sources.
+     * 
+     * @param target
+     */
+    public synchronized void addTo(AppRaterTimeBuckets target)
+    {
+        for (long hour = Math.max(lastHour - BUCKET_COUNT + 1, 0); hour <= lastHour; hour++)
+        {
+            int count = counts.get(indexOf(hour));
+            if (count != 0)
+            {
+                target.add(hour * MILLIS_PER_HOUR, count);
+            }
+        }
+    }
+
+    /**
+     * Move the newest bucket forward to the given hour and clear the buckets in between.
+     * 
+     * @param hour
+     */
+    private void advance(long hour)
+    {
+        if (hour <= lastHour)
+        {
+            return;
+        }
+
+        if (hour - lastHour >= BUCKET_COUNT)
+        {
+            clear();
+        }
+        else
+        {
+            for (long current = lastHour + 1; current <= hour; current++)
+            {
+                counts.set(indexOf(current), 0);
+            }
+        }
+        lastHour = hour;
+    }
+
+    private static int indexOf(long hour)
+    {
+        return (int) (hour % BUCKET_COUNT);
+    }
+}
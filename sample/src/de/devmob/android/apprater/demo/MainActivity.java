@@ -18,19 +18,17 @@
  */
 package de.devmob.android.apprater.demo;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.app.Dialog;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.text.Editable;
 import android.text.Html;
+import android.text.TextUtils;
 import android.text.method.LinkMovementMethod;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.View;
@@ -38,14 +36,16 @@ import android.widget.TextView;
 import android.widget.Toast;
 import de.devmob.android.apprater.AppRaterCallback;
 import de.devmob.android.apprater.AppRater;
+import de.devmob.android.apprater.AppRaterLog;
+import de.devmob.android.apprater.AppRaterLogRecord;
 import de.devmob.android.apprater.demo.R;
 
 /**
  * Simple main activity of the demo application to show the usage of the
  * DroidAppRater utils.
- * The application enables logging of the library and fetches the logs
- * to present them inside the app. This way one can directly comprehend all
- * ongoing checks.
+ * The application keeps the log records of the library in memory and
+ * presents them inside the app, latest first. This way one can directly 
+ * comprehend all ongoing checks.
  * 
  * @author friederike.wild
  */
@@ -53,8 +53,22 @@ public class MainActivity extends Activity
 {
     public static final String   LOG = "devmob_apprater_demo";
 
-    /** The instance of the background taks to read the logs */
-    private AppRaterLogReader    mBackgroundTask;
+    /** Amount of log lines shown at most. */
+    private static final int     LOG_WINDOW        = 100;
+
+    /** Flag if the log buffer of the library was set up for this process. */
+    private static boolean       sLogBufferEnabled = false;
+
+    /** The shown log lines, latest first. */
+    private Editable             mLogText;
+    /** Amount of shown log lines. */
+    private int                  mLogLineCount     = 0;
+    /** Sequence number of the last shown log record. */
+    private long                 mLastLogSequence  = 0;
+    /** Reused lists to fetch the new log records. */
+    private final List<AppRaterLogRecord> mNewLogRecords = new ArrayList<AppRaterLogRecord>();
+    private final StringBuilder  mNewLogLines      = new StringBuilder();
+
     private AppRater             appRater;
     /** The instance of a callback handler */
     private DemoAppraterCallback mDemoAppraterCallback;
@@ -68,6 +82,18 @@ public class MainActivity extends Activity
         super.onCreate(savedInstanceState);
         this.setContentView(R.layout.layout_main);
 
+        // Keep the latest log records of the library in memory, before they are written.
+        // Setting the capacity clears the buffer, so only do it once per process.
+        if (!sLogBufferEnabled)
+        {
+            AppRaterLog.setBufferCapacity(LOG_WINDOW);
+            sLogBufferEnabled = true;
+        }
+
+        TextView logTextView = (TextView) findViewById(R.id.textLog);
+        logTextView.setText("", TextView.BufferType.EDITABLE);
+        mLogText = logTextView.getEditableText();
+
         this.mDemoAppraterCallback = new DemoAppraterCallback();
         appRater = new AppRater(this);
         
@@ -198,90 +224,37 @@ public class MainActivity extends Activity
     }
 
     /**
-     * Private method to start the background task to fetch
-     * the logging. Trigger when something has changed.
+     * Private method to show the log records written since the last update.
+     * Trigger when something has changed.
      */
     private void updateLogging()
     {
-        // Safety-check if already running
-        if (mBackgroundTask == null || !mBackgroundTask.isRunning)
+        mNewLogRecords.clear();
+        mLastLogSequence = AppRaterLog.getRecords(mLastLogSequence, mNewLogRecords);
+        if (mNewLogRecords.isEmpty())
         {
-            mBackgroundTask = new AppRaterLogReader();
-            mBackgroundTask.execute();
+            return;
         }
-    }
 
-    /**
-     * Private util class to read all logs from the DroidAppRater in the background
-     * and write the result with latest first in the text view.
-     * 
-     * @author Friederike Wild
-     */
-    private class AppRaterLogReader extends AsyncTask<Void, Void, String>
-    {
-        public boolean isRunning = false;
-        
-        @Override
-        protected String doInBackground(Void... params)
+        // Only the new lines are inserted, latest first
+        mNewLogLines.setLength(0);
+        for (int index = mNewLogRecords.size() - 1; index >= 0; index--)
         {
-            isRunning = true;
-            
-            try
-            {
-                // Put up the logcat filtering command
-                StringBuilder baseCommandBuilder = new StringBuilder(); 
-                baseCommandBuilder.append("logcat -d -v raw ");
-                baseCommandBuilder.append(AppRater.LOG_TAG); // Filter only the used Library Logging Tag
-                baseCommandBuilder.append(":I"); // Filter only the info debug level
-                baseCommandBuilder.append(" MyApp:D "); // Info for my app
-                baseCommandBuilder.append(" *:S "); // Silence others
-                
-                Process process = Runtime.getRuntime().exec(baseCommandBuilder.toString());
-
-                BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-                // Fetch the logs in a list to sort them in the opposite direction
-                List<String> list = new ArrayList<String>();
-                String line;
-                while ((line = bufferedReader.readLine()) != null)
-                {
-                    list.add(line + "\n");
-                    
-                    Log.d(LOG, "Logcat: " + line);
-                }
-
-                // Add the log lines in the opposite direction
-                StringBuilder log = new StringBuilder();
-                for (int lineIndex = list.size() - 1; lineIndex >= 0; lineIndex--)
-                {
-                    log.append(list.get(lineIndex));
-                }
-
-                return log.toString();
-            }
-            catch (Throwable t)
-            {
-                Log.e(LOG, "Exception while reading log: " + t.getMessage());
-                isRunning = false;
-            }
-
-            return null;
+            mNewLogLines.append(mNewLogRecords.get(index).getMessage()).append('\n');
         }
+        mLogText.insert(0, mNewLogLines);
+        mLogLineCount += mNewLogRecords.size();
 
-        /* (non-Javadoc)
-         * @see android.os.AsyncTask#onPostExecute(java.lang.Object)
-         */
-        @Override
-        protected void onPostExecute(String result)
+        // Drop the oldest lines at the end to keep the window bounded
+        if (mLogLineCount > LOG_WINDOW)
         {
-            if (result != null)
+            int position = 0;
+            for (int line = 0; line < LOG_WINDOW; line++)
             {
-                // Update the text view to show the latest log history
-                TextView textView = (TextView) findViewById(R.id.textLog);
-                textView.setText(result);
+                position = TextUtils.indexOf(mLogText, '\n', position) + 1;
             }
-            
-            isRunning = false;
+            mLogText.delete(position, mLogText.length());
+            mLogLineCount = LOG_WINDOW;
         }
     }
 
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import de.devmob.android.apprater.AppRaterConfig;
+import de.devmob.android.apprater.AppRaterDecider;
+import de.devmob.android.apprater.AppRaterMemoryStore;
+
+/**
+ * Offline simulation of the rating dialog for tuning the configuration. Replays the usage traces 
+ * of the users through the same decision logic the app rater runs on each check ({@link AppRaterDecider}),
+ * on a simulated clock, and reports how many users see the dialog, when and how often.
+ * 
+ * The users are split into partitions that are simulated in parallel on a fork-join pool.
+ * Each partition reuses one trace, store and decider, so millions of users can be simulated 
+ * for a grid of configurations in minutes.
+ * 
+ * Usage:
+ * <pre>
+ * AppRaterSimulator --users 1000000 --launches 2,4,8 --days 2,4,7 --events 2,5
+ * AppRaterSimulator --trace traces.csv --launches 4 --days 2,4,7,14 --events 2
+ * </pre>
+ * 
+ * @author Friederike Wild
+ */
+public class AppRaterSimulator
+{
+    /** The maximum amount of users simulated by one task without splitting it further. */
+    private static final int   PARTITION_SIZE = 4096;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Create the simulator with a pool of the given parallelism.
+     * 
+     * @param parallelism The amount of threads, e.g. the amount of cores.
+     */
+    public AppRaterSimulator(int parallelism)
+    {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Simulate all users of the given source with the given configuration.
+     * 
+     * @param source
+     * @param config
+     * @return The merged result of all users.
+     */
+    public SimulationResult simulate(TraceSource source, AppRaterConfig config)
+    {
+        return pool.invoke(new Partition(source, config, 0, source.getUserCount()));
+    }
+
+    /**
+     * Stop the threads of the pool.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        int users = 100000;
+        int days = 90;
+        double launchesPerDay = 1;
+        double eventsPerLaunch = 0.5;
+        long seed = 1;
+        String trace = null;
+        int[] launches = { 4 };
+        int[] daysTillRate = { 4 };
+        int[] events = { 2 };
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        for (int index = 0; index + 1 < args.length; index += 2)
+        {
+            String name = args[index];
+            String value = args[index + 1];
+            if ("--users".equals(name))
+            {
+                users = Integer.parseInt(value);
+            }
+            else if ("--usage-days".equals(name))
+            {
+                days = Integer.parseInt(value);
+            }
+            else if ("--launches-per-day".equals(name))
+            {
+                launchesPerDay = Double.parseDouble(value);
+            }
+            else if ("--events-per-launch".equals(name))
+            {
+                eventsPerLaunch = Double.parseDouble(value);
+            }
+            else if ("--seed".equals(name))
+            {
+                seed = Long.parseLong(value);
+            }
+            else if ("--trace".equals(name))
+            {
+                trace = value;
+            }
+            else if ("--launches".equals(name))
+            {
+                launches = parseInts(value);
+            }
+            else if ("--days".equals(name))
+            {
+                daysTillRate = parseInts(value);
+            }
+            else if ("--events".equals(name))
+            {
+                events = parseInts(value);
+            }
+            else if ("--threads".equals(name))
+            {
+                parallelism = Integer.parseInt(value);
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unknown option " + name);
+            }
+        }
+
+        TraceSource source;
+        if (trace != null)
+        {
+            Reader reader = new FileReader(trace);
+            try
+            {
+                source = new RecordedTraceSource(reader);
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        else
+        {
+            source = new SyntheticTraceSource(users, days, launchesPerDay, eventsPerLaunch, seed);
+        }
+
+        AppRaterSimulator simulator = new AppRaterSimulator(parallelism);
+        try
+        {
+            for (int launch : launches)
+            {
+                for (int day : daysTillRate)
+                {
+                    for (int event : events)
+                    {
+                        AppRaterConfig config = new AppRaterConfig(launch, day, event, false, false, AppRaterConfig.STORAGE_PREFERENCES);
+                        long start = System.nanoTime();
+                        SimulationResult result = simulator.simulate(source, config);
+                        long millis = (System.nanoTime() - start) / 1000000;
+                        System.out.println("launches=" + launch + " days=" + day + " events=" + event + ": " + result + " (" + millis + " ms)");
+                    }
+                }
+            }
+        }
+        finally
+        {
+            simulator.shutdown();
+        }
+    }
+
+    private static int[] parseInts(String value)
+    {
+        String[] parts = value.split(",");
+        int[] values = new int[parts.length];
+        for (int index = 0; index < parts.length; index++)
+        {
+            values[index] = Integer.parseInt(parts[index].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Simulation of a range of users, split in halves till it is small enough.
+     */
+    private static final class Partition extends RecursiveTask<SimulationResult>
+    {
+        private static final long    serialVersionUID = 1L;
+
+        private final TraceSource    source;
+        private final AppRaterConfig config;
+        private final int            from;
+        private final int            to;
+
+        Partition(TraceSource source, AppRaterConfig config, int from, int to)
+        {
+            this.source = source;
+            this.config = config;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationResult compute()
+        {
+            if (to - from > PARTITION_SIZE)
+            {
+                int middle = (from + to) >>> 1;
+                Partition second = new Partition(source, config, middle, to);
+                second.fork();
+                SimulationResult result = new Partition(source, config, from, middle).compute();
+                result.add(second.join());
+                return result;
+            }
+
+            SimulationResult result = new SimulationResult();
+            UsageTrace trace = new UsageTrace();
+            SimulatedStore store = new SimulatedStore();
+            SimulatedDecider decider = new SimulatedDecider(store, config);
+            for (int user = from; user < to; user++)
+            {
+                trace.clear();
+                source.load(user, trace);
+                store.reset();
+                simulate(trace, store, decider, result);
+            }
+            return result;
+        }
+
+        /**
+         * Replay the trace of one user the same way the app rater checks on start and on events.
+         */
+        private static void simulate(UsageTrace trace, SimulatedStore store, SimulatedDecider decider, SimulationResult result)
+        {
+            int prompts = 0;
+            long firstPromptMillis = 0;
+
+            for (int index = 0; index < trace.size(); index++)
+            {
+                long time = trace.getTime(index);
+                store.time = time;
+
+                boolean showRating;
+                switch (trace.getAction(index))
+                {
+                    case UsageTrace.ACTION_LAUNCH:
+                        showRating = decider.shouldShowRatingOnStart(time);
+                        break;
+                    case UsageTrace.ACTION_TYPED_EVENT:
+                        showRating = decider.shouldShowRatingOnEvent(trace.getValue(index));
+                        break;
+                    default:
+                        showRating = decider.shouldShowRatingOnEvent();
+                        break;
+                }
+
+                if (!showRating)
+                {
+                    continue;
+                }
+
+                if (prompts == 0)
+                {
+                    firstPromptMillis = time - trace.getTime(0);
+                }
+                int answer = prompts < trace.getAnswerCount() ? trace.getAnswer(prompts) : UsageTrace.ANSWER_DISMISS;
+                prompts++;
+                result.addAnswer(answer);
+
+                switch (answer)
+                {
+                    case UsageTrace.ANSWER_RATE:
+                        store.storeRated();
+                        break;
+                    case UsageTrace.ANSWER_REMIND_LATER:
+                        store.storeToRateLater();
+                        break;
+                    case UsageTrace.ANSWER_NEVER:
+                        store.storeRatingDeclined();
+                        break;
+                    default:
+                        // Dismissed, nothing is stored
+                        break;
+                }
+            }
+
+            result.addUser(prompts, firstPromptMillis);
+        }
+    }
+
+    /**
+     * Memory store on the simulated clock.
+     */
+    private static final class SimulatedStore extends AppRaterMemoryStore
+    {
+        /** The simulated time in millis. */
+        long time;
+
+        @Override
+        protected long currentTimeMillis()
+        {
+            return time;
+        }
+    }
+
+    /**
+     * Decision logic on the simulated clock of the store.
+     */
+    private static final class SimulatedDecider extends AppRaterDecider
+    {
+        private final SimulatedStore store;
+
+        SimulatedDecider(SimulatedStore store, AppRaterConfig config)
+        {
+            super(store, config);
+            this.store = store;
+        }
+
+        @Override
+        protected long currentTimeMillis()
+        {
+            return store.time;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Usage traces recorded from real users, read from comma separated lines of 
+ * "user,time,action" or "user,time,action,value":
+ * <pre>
+ * user-1,1500000000000,launch
+ * user-1,1500000060000,event
+ * user-1,1500000120000,event,3
+ * user-1,1500000180000,answer,later
+ * </pre>
+ * The time is given in millis, the action is "launch", "event" with an optional event type or "answer"
+ * with "rate", "later", "never" or "dismiss" as value. The answers are given to the dialogs in their order,
+ * independent of their time. The lines of a user have to be in the order of their time, the users may be mixed.
+ * Empty lines and lines starting with # are ignored.
+ * 
+ * @author Friederike Wild
+ */
+public class RecordedTraceSource implements TraceSource
+{
+    private final List<UsageTrace> traces = new ArrayList<UsageTrace>();
+
+    /**
+     * Read all traces.
+     * 
+     * @param reader
+     * @throws IOException In case reading fails or a line is broken.
+     */
+    public RecordedTraceSource(Reader reader) throws IOException
+    {
+        Map<String, UsageTrace> users = new HashMap<String, UsageTrace>();
+        BufferedReader lines = new BufferedReader(reader);
+        int lineNumber = 0;
+        String line;
+        while ((line = lines.readLine()) != null)
+        {
+            lineNumber++;
+            line = line.trim();
+            if (line.length() == 0 || line.startsWith("#"))
+            {
+                continue;
+            }
+
+            String[] parts = line.split(",");
+            if (parts.length < 3)
+            {
+                throw new IOException("Broken line " + lineNumber + ": " + line);
+            }
+
+            UsageTrace trace = users.get(parts[0]);
+            if (trace == null)
+            {
+                trace = new UsageTrace();
+                users.put(parts[0], trace);
+                traces.add(trace);
+            }
+
+            try
+            {
+                long time = Long.parseLong(parts[1].trim());
+                String action = parts[2].trim();
+                String value = parts.length > 3 ? parts[3].trim() : null;
+                if (trace.size() > 0 && time < trace.getTime(trace.size() - 1))
+                {
+                    throw new IOException("Line " + lineNumber + " is older than the previous line of the user: " + line);
+                }
+
+                if ("launch".equals(action))
+                {
+                    trace.addAction(time, UsageTrace.ACTION_LAUNCH, 0);
+                }
+                else if ("event".equals(action) && value == null)
+                {
+                    trace.addAction(time, UsageTrace.ACTION_EVENT, 0);
+                }
+                else if ("event".equals(action))
+                {
+                    trace.addAction(time, UsageTrace.ACTION_TYPED_EVENT, Integer.parseInt(value));
+                }
+                else if ("answer".equals(action))
+                {
+                    trace.addAnswer(parseAnswer(value));
+                }
+                else
+                {
+                    throw new IOException("Unknown action in line " + lineNumber + ": " + line);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                throw new IOException("Broken number in line " + lineNumber + ": " + line);
+            }
+        }
+    }
+
+    public int getUserCount()
+    {
+        return traces.size();
+    }
+
+    public void load(int user, UsageTrace trace)
+    {
+        trace.copyFrom(traces.get(user));
+    }
+
+    private static int parseAnswer(String value) throws IOException
+    {
+        if ("rate".equals(value))
+        {
+            return UsageTrace.ANSWER_RATE;
+        }
+        else if ("later".equals(value))
+        {
+            return UsageTrace.ANSWER_REMIND_LATER;
+        }
+        else if ("never".equals(value))
+        {
+            return UsageTrace.ANSWER_NEVER;
+        }
+        else if ("dismiss".equals(value))
+        {
+            return UsageTrace.ANSWER_DISMISS;
+        }
+        throw new IOException("Unknown answer: " + value);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+/**
+ * The outcome of simulating a group of users with one configuration.
+ * Results of the partitions of the users are merged via {@link #add(SimulationResult)}.
+ * 
+ * @author Friederike Wild
+ */
+public final class SimulationResult
+{
+    /** Amount of days kept in the histogram of the time till the first dialog. Later first dialogs share the last bucket. */
+    public static final int   MAX_DAYS       = 366;
+
+    private static final long MILLIS_PER_DAY = 1000L * 60 * 60 * 24;
+
+    private long              users;
+    private long              promptedUsers;
+    private long              prompts;
+    private long              remindLater;
+    private long              rated;
+    private long              declined;
+    private long              dismissed;
+    private long              firstPromptMillis;
+    private final long[]      firstPromptDays = new long[MAX_DAYS];
+
+    /**
+     * Record a simulated user.
+     * 
+     * @param prompts The amount of shown dialogs.
+     * @param firstPromptMillis The time from the first launch till the first dialog.
+     */
+    void addUser(int prompts, long firstPromptMillis)
+    {
+        users++;
+        if (prompts > 0)
+        {
+            promptedUsers++;
+            this.prompts += prompts;
+            this.firstPromptMillis += firstPromptMillis;
+            firstPromptDays[(int) Math.min(firstPromptMillis / MILLIS_PER_DAY, MAX_DAYS - 1)]++;
+        }
+    }
+
+    /**
+     * Record an answer to a dialog.
+     * 
+     * @param answer One of the UsageTrace.ANSWER_* constants.
+     */
+    void addAnswer(int answer)
+    {
+        switch (answer)
+        {
+            case UsageTrace.ANSWER_RATE:
+                rated++;
+                break;
+            case UsageTrace.ANSWER_REMIND_LATER:
+                remindLater++;
+                break;
+            case UsageTrace.ANSWER_NEVER:
+                declined++;
+                break;
+            default:
+                dismissed++;
+                break;
+        }
+    }
+
+    /**
+     * Add the values of the given result.
+     * 
+     * @param result
+     */
+    public void add(SimulationResult result)
+    {
+        users += result.users;
+        promptedUsers += result.promptedUsers;
+        prompts += result.prompts;
+        remindLater += result.remindLater;
+        rated += result.rated;
+        declined += result.declined;
+        dismissed += result.dismissed;
+        firstPromptMillis += result.firstPromptMillis;
+        for (int day = 0; day < MAX_DAYS; day++)
+        {
+            firstPromptDays[day] += result.firstPromptDays[day];
+        }
+    }
+
+    public long getUsers()
+    {
+        return users;
+    }
+
+    /**
+     * Get the amount of users that saw at least one dialog.
+     * 
+     * @return The amount of users.
+     */
+    public long getPromptedUsers()
+    {
+        return promptedUsers;
+    }
+
+    /**
+     * Get the amount of shown dialogs of all users.
+     * 
+     * @return The amount of dialogs.
+     */
+    public long getPrompts()
+    {
+        return prompts;
+    }
+
+    /**
+     * Get the amount of remind later cycles: the answers to be asked later.
+     * 
+     * @return The amount of answers.
+     */
+    public long getRemindLater()
+    {
+        return remindLater;
+    }
+
+    public long getRated()
+    {
+        return rated;
+    }
+
+    public long getDeclined()
+    {
+        return declined;
+    }
+
+    public long getDismissed()
+    {
+        return dismissed;
+    }
+
+    /**
+     * Get the mean time from the first launch till the first dialog of the prompted users.
+     * 
+     * @return The time in days.
+     */
+    public double getMeanDaysToFirstPrompt()
+    {
+        return promptedUsers == 0 ? 0 : (double) firstPromptMillis / promptedUsers / MILLIS_PER_DAY;
+    }
+
+    /**
+     * Get the percentile of the full days from the first launch till the first dialog of the prompted users.
+     * 
+     * @param percentile The percentile between 0 and 100.
+     * @return The days.
+     */
+    public int getDaysToFirstPrompt(double percentile)
+    {
+        long threshold = (long) Math.ceil(promptedUsers * percentile / 100);
+        long seen = 0;
+        for (int day = 0; day < MAX_DAYS; day++)
+        {
+            seen += firstPromptDays[day];
+            if (seen >= threshold && seen > 0)
+            {
+                return day;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "users=" + users
+                + " prompted=" + promptedUsers + String.format(" (%.1f%%)", users == 0 ? 0.0 : 100.0 * promptedUsers / users)
+                + " prompts=" + prompts
+                + String.format(" firstPrompt mean=%.1fd", getMeanDaysToFirstPrompt())
+                + " p50=" + getDaysToFirstPrompt(50) + "d"
+                + " p90=" + getDaysToFirstPrompt(90) + "d"
+                + " remindLater=" + remindLater
+                + " rated=" + rated
+                + " declined=" + declined
+                + " dismissed=" + dismissed;
+    }
+}
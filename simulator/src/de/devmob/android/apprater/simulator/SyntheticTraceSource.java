@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+/**
+ * Generates the usage traces of the simulated users on demand. Each user gets an activity level 
+ * and a lifetime drawn from exponential distributions, the launches per day and the events per 
+ * launch follow Poisson distributions around the given means scaled by the activity level.
+ * 
+ * The trace of a user only depends on the seed and the index of the user, so the same users are 
+ * simulated for each configuration and the traces don't have to be kept in memory.
+ * 
+ * @author Friederike Wild
+ */
+public class SyntheticTraceSource implements TraceSource
+{
+    /** The time of the first launch of all users, the actual start date is not relevant for the simulation. */
+    public static final long  START_TIME     = 1500000000000L;
+
+    private static final long MILLIS_PER_DAY = 1000L * 60 * 60 * 24;
+    /** Time between a launch and its events. */
+    private static final long EVENT_INTERVAL = 1000L * 60;
+
+    private final int         users;
+    private final int         days;
+    private final double      launchesPerDay;
+    private final double      eventsPerLaunch;
+    private final double      rateProbability;
+    private final double      remindLaterProbability;
+    private final double      neverProbability;
+    private final long        seed;
+
+    /**
+     * Create the source with users that rate, postpone or decline with the same probability.
+     * 
+     * @param users The amount of users.
+     * @param days The maximum days a user uses the app.
+     * @param launchesPerDay The mean launches per day and user.
+     * @param eventsPerLaunch The mean positive events per launch.
+     * @param seed
+     */
+    public SyntheticTraceSource(int users, int days, double launchesPerDay, double eventsPerLaunch, long seed)
+    {
+        this(users, days, launchesPerDay, eventsPerLaunch, 0.25, 0.25, 0.25, seed);
+    }
+
+    /**
+     * Create the source.
+     * 
+     * @param users The amount of users.
+     * @param days The maximum days a user uses the app.
+     * @param launchesPerDay The mean launches per day and user.
+     * @param eventsPerLaunch The mean positive events per launch.
+     * @param rateProbability The probability to rate when the dialog is shown.
+     * @param remindLaterProbability The probability to be asked later.
+     * @param neverProbability The probability to decline. The remaining probability dismisses the dialog.
+     * @param seed
+     */
+    public SyntheticTraceSource(int users, int days, double launchesPerDay, double eventsPerLaunch, 
+                                double rateProbability, double remindLaterProbability, double neverProbability, long seed)
+    {
+        this.users = users;
+        this.days = days;
+        this.launchesPerDay = launchesPerDay;
+        this.eventsPerLaunch = eventsPerLaunch;
+        this.rateProbability = rateProbability;
+        this.remindLaterProbability = remindLaterProbability;
+        this.neverProbability = neverProbability;
+        this.seed = seed;
+    }
+
+    public int getUserCount()
+    {
+        return users;
+    }
+
+    public void load(int user, UsageTrace trace)
+    {
+        Random random = new Random(seed * 31 + user);
+
+        // Activity level and lifetime, both with a mean of 1 resp. half of the days
+        double activity = random.nextExponential();
+        int lifetime = (int) Math.min(days, Math.ceil(random.nextExponential() * days / 2));
+
+        for (int day = 0; day < lifetime; day++)
+        {
+            int launches = random.nextPoisson(launchesPerDay * activity);
+            for (int launch = 0; launch < launches; launch++)
+            {
+                // Spread the launches over the day
+                long time = START_TIME + day * MILLIS_PER_DAY + (long) ((launch + random.nextDouble()) * MILLIS_PER_DAY / launches);
+                trace.addAction(time, UsageTrace.ACTION_LAUNCH, 0);
+
+                int events = random.nextPoisson(eventsPerLaunch);
+                for (int event = 1; event <= events; event++)
+                {
+                    trace.addAction(time + event * EVENT_INTERVAL, UsageTrace.ACTION_EVENT, 0);
+                }
+            }
+        }
+
+        // Enough answers for any realistic amount of dialogs
+        for (int dialog = 0; dialog < 16; dialog++)
+        {
+            double value = random.nextDouble();
+            if (value < rateProbability)
+            {
+                trace.addAnswer(UsageTrace.ANSWER_RATE);
+                break;
+            }
+            else if (value < rateProbability + neverProbability)
+            {
+                trace.addAnswer(UsageTrace.ANSWER_NEVER);
+                break;
+            }
+            else if (value < rateProbability + neverProbability + remindLaterProbability)
+            {
+                trace.addAnswer(UsageTrace.ANSWER_REMIND_LATER);
+            }
+            else
+            {
+                trace.addAnswer(UsageTrace.ANSWER_DISMISS);
+            }
+        }
+    }
+
+    /**
+     * Small and fast xorshift random generator, one instance per generated trace.
+     */
+    private static final class Random
+    {
+        private long state;
+
+        Random(long seed)
+        {
+            // Spread the seed, so neighbouring users get unrelated sequences
+            state = seed * 0x9E3779B97F4A7C15L + 0x632BE59BD9B4E019L;
+            if (state == 0)
+            {
+                state = 1;
+            }
+        }
+
+        double nextDouble()
+        {
+            state ^= state << 13;
+            state ^= state >>> 7;
+            state ^= state << 17;
+            return (state >>> 11) * 0x1.0p-53;
+        }
+
+        double nextExponential()
+        {
+            return -Math.log(1 - nextDouble());
+        }
+
+        int nextPoisson(double mean)
+        {
+            double limit = Math.exp(-mean);
+            double product = nextDouble();
+            int count = 0;
+            while (product > limit)
+            {
+                product *= nextDouble();
+                count++;
+            }
+            return count;
+        }
+    }
+}
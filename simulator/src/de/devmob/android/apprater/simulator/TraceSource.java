@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+/**
+ * Source of the usage traces of the simulated users.
+ * 
+ * @author Friederike Wild
+ */
+public interface TraceSource
+{
+    /**
+     * Get the amount of users.
+     * 
+     * @return The amount of traces.
+     */
+    public int getUserCount();
+
+    /**
+     * Load the trace of the given user. Called concurrently for different users, 
+     * so implementations have to be thread safe.
+     * 
+     * @param user The index of the user between 0 and getUserCount() - 1.
+     * @param trace The trace to fill, cleared before.
+     */
+    public void load(int user, UsageTrace trace);
+}
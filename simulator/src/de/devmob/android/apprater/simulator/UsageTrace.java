@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 Friederike Wild <friederike.wild@devmob.de>
+ * Created 17.10.2026
+ *
+ * https://github.com/friederikewild/DroidAppRater
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.devmob.android.apprater.simulator;
+
+/**
+ * The usage of the app by a single user: the launches and positive events in the order of their time
+ * and the answers the user gives to the rating dialogs, in the order the dialogs are shown.
+ * Kept in primitive arrays that grow on demand, so one trace can be reused for many users.
+ * 
+ * @author Friederike Wild
+ */
+public final class UsageTrace
+{
+    /** The app was launched. */
+    public static final int ACTION_LAUNCH        = 0;
+    /** A positive event without a type happened. */
+    public static final int ACTION_EVENT         = 1;
+    /** A positive event of the type given as value happened. */
+    public static final int ACTION_TYPED_EVENT   = 2;
+
+    /** The user rates. */
+    public static final int ANSWER_RATE          = 0;
+    /** The user wants to be asked later. */
+    public static final int ANSWER_REMIND_LATER  = 1;
+    /** The user never wants to rate. */
+    public static final int ANSWER_NEVER         = 2;
+    /** The user dismisses the dialog without an answer, so it is shown again on the next trigger. */
+    public static final int ANSWER_DISMISS       = 3;
+
+    private long[]          times                = new long[64];
+    private int[]           actions              = new int[64];
+    private int[]           values               = new int[64];
+    private int             size;
+
+    private int[]           answers              = new int[4];
+    private int             answerCount;
+
+    /**
+     * Remove all actions and answers.
+     */
+    public void clear()
+    {
+        size = 0;
+        answerCount = 0;
+    }
+
+    /**
+     * Add an action. Actions have to be added in the order of their time.
+     * 
+     * @param time The time in millis.
+     * @param action One of the ACTION_* constants.
+     * @param value The event type of ACTION_TYPED_EVENT, otherwise ignored.
+     */
+    public void addAction(long time, int action, int value)
+    {
+        if (size == times.length)
+        {
+            int capacity = size * 2;
+            long[] grownTimes = new long[capacity];
+            int[] grownActions = new int[capacity];
+            int[] grownValues = new int[capacity];
+            System.arraycopy(times, 0, grownTimes, 0, size);
+            System.arraycopy(actions, 0, grownActions, 0, size);
+            System.arraycopy(values, 0, grownValues, 0, size);
+            times = grownTimes;
+            actions = grownActions;
+            values = grownValues;
+        }
+
+        times[size] = time;
+        actions[size] = action;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Add the answer to the next rating dialog. Dialogs shown after the last answer are dismissed.
+     * 
+     * @param answer One of the ANSWER_* constants.
+     */
+    public void addAnswer(int answer)
+    {
+        if (answerCount == answers.length)
+        {
+            int[] grown = new int[answerCount * 2];
+            System.arraycopy(answers, 0, grown, 0, answerCount);
+            answers = grown;
+        }
+        answers[answerCount++] = answer;
+    }
+
+    /**
+     * Replace this trace with a copy of the given one.
+     * 
+     * @param trace
+     */
+    public void copyFrom(UsageTrace trace)
+    {
+        clear();
+        for (int index = 0; index < trace.size; index++)
+        {
+            addAction(trace.times[index], trace.actions[index], trace.values[index]);
+        }
+        for (int index = 0; index < trace.answerCount; index++)
+        {
+            addAnswer(trace.answers[index]);
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long getTime(int index)
+    {
+        return times[index];
+    }
+
+    public int getAction(int index)
+    {
+        return actions[index];
+    }
+
+    public int getValue(int index)
+    {
+        return values[index];
+    }
+
+    public int getAnswerCount()
+    {
+        return answerCount;
+    }
+
+    public int getAnswer(int index)
+    {
+        return answers[index];
+    }
+}